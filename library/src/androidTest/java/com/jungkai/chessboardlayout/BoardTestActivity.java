@@ -0,0 +1,60 @@
+package com.jungkai.chessboardlayout;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+
+/**
+ * Hosts a ChessBoardLayout of fixed size cells for instrumentation tests.
+ */
+public class BoardTestActivity extends Activity {
+
+    public static final int ITEM_COUNT = 30;
+
+    public static final int CELL_HEIGHT = 100;
+
+    private ChessBoardLayout board;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        board = new ChessBoardLayout(this);
+        board.setColCount(3);
+        board.setAdapter(new BaseAdapter() {
+            @Override
+            public int getCount() {
+                return ITEM_COUNT;
+            }
+
+            @Override
+            public Object getItem(int position) {
+                return position;
+            }
+
+            @Override
+            public long getItemId(int position) {
+                return position;
+            }
+
+            @Override
+            public View getView(int position, View convertView, ViewGroup parent) {
+                if (convertView == null) {
+                    convertView = new View(BoardTestActivity.this);
+                    convertView.setLayoutParams(new AbsListView.LayoutParams(
+                            ViewGroup.LayoutParams.MATCH_PARENT, CELL_HEIGHT));
+                }
+                return convertView;
+            }
+        });
+
+        setContentView(board);
+    }
+
+    public ChessBoardLayout getBoard() {
+        return board;
+    }
+}
@@ -0,0 +1,100 @@
+package com.jungkai.chessboardlayout;
+
+import android.test.AndroidTestCase;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+
+public class RepeatedMeasureTest extends AndroidTestCase {
+
+    private static final int ITEM_COUNT = 30;
+
+    private static final int CELL_HEIGHT = 100;
+
+    private ChessBoardLayout board;
+
+    private CountingAdapter adapter;
+
+    private final int widthSpec = MeasureSpec.makeMeasureSpec(300, MeasureSpec.EXACTLY);
+
+    private final int heightSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        board = new ChessBoardLayout(getContext());
+        board.setColCount(3);
+        adapter = new CountingAdapter();
+        board.setAdapter(adapter);
+    }
+
+    private void layout() {
+        board.layout(0, 0, board.getMeasuredWidth(), board.getMeasuredHeight());
+    }
+
+    public void testSecondMeasureDoesNotBindAgain() {
+        board.measure(widthSpec, heightSpec);
+        assertEquals(ITEM_COUNT, adapter.getViewCount);
+
+        board.measure(widthSpec, heightSpec);
+        layout();
+        assertEquals(ITEM_COUNT, adapter.getViewCount);
+        assertEquals(ITEM_COUNT, board.getChildCount());
+    }
+
+    public void testSecondMeasureAfterDataChangeDoesNotBindAgain() {
+        board.measure(widthSpec, heightSpec);
+        layout();
+
+        adapter.getViewCount = 0;
+        adapter.notifyDataSetChanged();
+        board.measure(widthSpec, heightSpec);
+        board.measure(widthSpec, heightSpec);
+        layout();
+        assertEquals(ITEM_COUNT, adapter.getViewCount);
+    }
+
+    public void testSecondMeasureOfUniformRowsBindsInLayout() {
+        board.setUniformRowHeight(CELL_HEIGHT);
+        board.measure(widthSpec, heightSpec);
+        board.measure(widthSpec, heightSpec);
+        assertEquals(0, adapter.getViewCount);
+
+        layout();
+        assertEquals(ITEM_COUNT, adapter.getViewCount);
+        assertEquals(ITEM_COUNT, board.getChildCount());
+    }
+
+    private class CountingAdapter extends BaseAdapter {
+
+        int getViewCount;
+
+        @Override
+        public int getCount() {
+            return ITEM_COUNT;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return position;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            getViewCount++;
+            if (convertView == null) {
+                convertView = new View(getContext());
+                convertView.setLayoutParams(new AbsListView.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, CELL_HEIGHT));
+            }
+            return convertView;
+        }
+    }
+}
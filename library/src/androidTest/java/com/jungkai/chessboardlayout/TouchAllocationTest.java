@@ -0,0 +1,85 @@
+package com.jungkai.chessboardlayout;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.MotionEvent;
+import android.view.ViewConfiguration;
+
+public class TouchAllocationTest extends ActivityInstrumentationTestCase2<BoardTestActivity> {
+
+    private ChessBoardLayout board;
+
+    private MotionEvent down;
+
+    private MotionEvent move;
+
+    private MotionEvent up;
+
+    public TouchAllocationTest() {
+        super(BoardTestActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        board = getActivity().getBoard();
+        getInstrumentation().waitForIdleSync();
+
+        final float x = board.getWidth() / 6f;
+        final float y = BoardTestActivity.CELL_HEIGHT / 2f;
+        final long downTime = SystemClock.uptimeMillis();
+        down = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, x, y, 0);
+        move = MotionEvent.obtain(downTime, downTime + 10, MotionEvent.ACTION_MOVE, x + 2, y + 2, 0);
+        up = MotionEvent.obtain(downTime, downTime + 20, MotionEvent.ACTION_UP, x + 2, y + 2, 0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        down.recycle();
+        move.recycle();
+        up.recycle();
+        super.tearDown();
+    }
+
+    private void tap() {
+        board.onTouchEvent(down);
+        board.onTouchEvent(move);
+        board.onTouchEvent(up);
+    }
+
+    private void tapOnUiThread() throws Throwable {
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                tap();
+            }
+        });
+    }
+
+    private void waitForTouchCallbacks() throws InterruptedException {
+        SystemClock.sleep(ViewConfiguration.getLongPressTimeout());
+        getInstrumentation().waitForIdleSync();
+    }
+
+    public void testTapDoesNotAllocate() throws Throwable {
+        // first tap loads classes and fills the message pool
+        tapOnUiThread();
+        waitForTouchCallbacks();
+
+        final int[] allocCount = new int[1];
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                Debug.startAllocCounting();
+                Debug.resetThreadAllocCount();
+                tap();
+                allocCount[0] = Debug.getThreadAllocCount();
+                Debug.stopAllocCounting();
+            }
+        });
+        waitForTouchCallbacks();
+
+        assertEquals(0, allocCount[0]);
+    }
+}
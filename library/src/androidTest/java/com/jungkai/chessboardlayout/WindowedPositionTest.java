@@ -0,0 +1,86 @@
+package com.jungkai.chessboardlayout;
+
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.ScrollView;
+
+public class WindowedPositionTest extends ActivityInstrumentationTestCase2<BoardTestActivity> {
+
+    private static final int VIEWPORT_HEIGHT = 3 * BoardTestActivity.CELL_HEIGHT;
+
+    private static final int COL_COUNT = 3;
+
+    private ChessBoardLayout board;
+
+    private ScrollView scrollView;
+
+    public WindowedPositionTest() {
+        super(BoardTestActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        final BoardTestActivity activity = getActivity();
+        board = activity.getBoard();
+
+        // a short viewport, so that scrolling detaches the leading rows
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                ((ViewGroup) board.getParent()).removeView(board);
+                board.setWindowed(true);
+                board.setWindowMargin(0);
+
+                scrollView = new ScrollView(activity);
+                scrollView.addView(board, new ViewGroup.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+                FrameLayout root = new FrameLayout(activity);
+                root.addView(scrollView, new FrameLayout.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, VIEWPORT_HEIGHT));
+                activity.setContentView(root);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                scrollView.scrollTo(0, 5 * BoardTestActivity.CELL_HEIGHT);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+    }
+
+    private int getPositionFromLayout(View child) {
+        final int row = child.getTop() / BoardTestActivity.CELL_HEIGHT;
+        final int column = child.getLeft() * COL_COUNT / board.getWidth();
+        return row * COL_COUNT + column;
+    }
+
+    public void testFirstVisiblePositionSkipsDetachedRows() {
+        final int childCount = board.getChildCount();
+        assertTrue(childCount > 0);
+        assertTrue(childCount < BoardTestActivity.ITEM_COUNT);
+
+        final int first = board.getFirstVisiblePosition();
+        assertTrue(first > 0);
+        assertEquals(getPositionFromLayout(board.getChildAt(0)), first);
+        assertEquals(first + childCount - 1, board.getLastVisiblePosition());
+    }
+
+    public void testPositionForViewOfWindowedChildren() {
+        final int first = board.getFirstVisiblePosition();
+        for (int i = 0; i < board.getChildCount(); i++) {
+            final View child = board.getChildAt(i);
+            assertEquals(getPositionFromLayout(child), board.getPositionForView(child));
+            assertEquals(first + i, board.getPositionForView(child));
+        }
+    }
+
+    public void testPositionForViewOfUnknownView() {
+        assertEquals(ChessBoardLayout.INVALID_POSITION, board.getPositionForView(new View(getActivity())));
+    }
+}
@@ -0,0 +1,209 @@
+package com.jungkai.chessboardlayout;
+
+/**
+ * Column table of a {@link ChessBoardLayout}: the offset of every column from the start edge of
+ * the first column and its width. Measure, layout and hit testing all read the columns from here.
+ *
+ * The columns are either split from the width of the board, equally or by weight, or fitted to
+ * their cells: the measure pass reports every measured cell to {@link #fitCell} and
+ * {@link #finishFit} then sizes the columns.
+ */
+class BoardColumns {
+
+    private int colCount;
+
+    private int spacing;
+
+    private int[] offsets = new int[0];
+
+    private int[] widths = new int[0];
+
+    /**
+     * Widest share of one column among the spanning cells of a fit.
+     */
+    private int spanFitWidth;
+
+    /**
+     * @return how many columns at least {@code minCellWidth} wide and {@code spacing} apart fit
+     * into {@code width}, at least 1.
+     */
+    static int countColumns(int width, int minCellWidth, int spacing) {
+        if (minCellWidth <= 0) {
+            return 1;
+        }
+        return Math.max(1, (width + spacing) / (minCellWidth + spacing));
+    }
+
+    /**
+     * Splits {@code width} into {@code colCount} columns {@code spacing} apart, in proportion to
+     * {@code weights} or equally if it is null. Columns without a weight weigh 1.
+     */
+    void split(int colCount, int width, int spacing, float[] weights) {
+        setColCount(colCount, spacing);
+        final int cellsWidth = Math.max(0, width - spacing * (colCount - 1));
+
+        float totalWeight = 0;
+        if (weights != null) {
+            for (int column = 0; column < colCount; column++) {
+                totalWeight += getWeight(weights, column);
+            }
+        }
+
+        if (totalWeight <= 0) {
+            final int columnWidth = cellsWidth / colCount;
+            for (int column = 0; column < colCount; column++) {
+                widths[column] = columnWidth;
+            }
+        } else {
+            // rounding the running sum keeps the columns within the width
+            float weightSum = 0;
+            int end = 0;
+            for (int column = 0; column < colCount; column++) {
+                weightSum += getWeight(weights, column);
+                final int nextEnd = Math.round(cellsWidth * weightSum / totalWeight);
+                widths[column] = nextEnd - end;
+                end = nextEnd;
+            }
+        }
+        computeOffsets();
+    }
+
+    private static float getWeight(float[] weights, int column) {
+        return column < weights.length ? Math.max(0, weights[column]) : 1;
+    }
+
+    /**
+     * Starts a fit of {@code colCount} columns, all of them 0 wide until cells are reported.
+     */
+    void beginFit(int colCount, int spacing) {
+        setColCount(colCount, spacing);
+        for (int column = 0; column < colCount; column++) {
+            widths[column] = 0;
+        }
+        spanFitWidth = 0;
+    }
+
+    /**
+     * Widens the column of a cell to the measured width of the cell. A spanning cell does not widen
+     * its columns, unless they have no other cells.
+     */
+    void fitCell(int column, int span, int cellWidth) {
+        if (column < 0 || column >= colCount) {
+            return;
+        }
+        if (span <= 1) {
+            widths[column] = Math.max(widths[column], cellWidth);
+        } else {
+            spanFitWidth = Math.max(spanFitWidth, (cellWidth - spacing * (span - 1)) / span);
+        }
+    }
+
+    /**
+     * Sizes the columns from the cells of the fit.
+     *
+     * @param equalWidths true to make every column as wide as the widest one, false to give each
+     *                    column the width of its widest cell
+     */
+    void finishFit(boolean equalWidths) {
+        int maxWidth = spanFitWidth;
+        for (int column = 0; column < colCount; column++) {
+            maxWidth = Math.max(maxWidth, widths[column]);
+        }
+        for (int column = 0; column < colCount; column++) {
+            if (equalWidths || widths[column] == 0) {
+                widths[column] = maxWidth;
+            }
+        }
+        computeOffsets();
+    }
+
+    private void setColCount(int colCount, int spacing) {
+        this.colCount = colCount;
+        this.spacing = spacing;
+        if (widths.length < colCount) {
+            widths = new int[colCount];
+            offsets = new int[colCount];
+        }
+    }
+
+    private void computeOffsets() {
+        int offset = 0;
+        for (int column = 0; column < colCount; column++) {
+            offsets[column] = offset;
+            offset += widths[column] + spacing;
+        }
+    }
+
+    int getColCount() {
+        return colCount;
+    }
+
+    int getOffset(int column) {
+        return offsets[column];
+    }
+
+    int getWidth(int column) {
+        return widths[column];
+    }
+
+    /**
+     * @return the width of a cell spanning {@code span} columns from {@code column}, the spacing
+     * between them included.
+     */
+    int getSpanWidth(int column, int span) {
+        final int last = Math.min(colCount, column + Math.max(1, span)) - 1;
+        return offsets[last] + widths[last] - offsets[column];
+    }
+
+    /**
+     * Puts the left and right edge of a cell spanning {@code span} columns from {@code column} into
+     * {@code outBounds[0]} and {@code outBounds[2]}, relative to the left edge of the content.
+     *
+     * @param rtl          true if the first column is at the right edge of the content
+     * @param contentWidth width of the board without padding, the right edge in right to left layouts
+     */
+    void getCellEdges(int column, int span, boolean rtl, int contentWidth, int[] outBounds) {
+        final int width = getSpanWidth(column, span);
+        final int left = rtl ? contentWidth - offsets[column] - width : offsets[column];
+        outBounds[0] = left;
+        outBounds[2] = left + width;
+    }
+
+    /**
+     * Turns a distance from the left edge of the content into the offset {@link #getColumnAt} and
+     * the hit tests take, mirrored in right to left layouts, see {@link #getCellEdges}.
+     */
+    static int toStartOffset(int x, boolean rtl, int contentWidth) {
+        return rtl ? contentWidth - 1 - x : x;
+    }
+
+    /**
+     * @return the width of all columns and the spacing between them.
+     */
+    int getTotalWidth() {
+        return colCount == 0 ? 0 : offsets[colCount - 1] + widths[colCount - 1];
+    }
+
+    /**
+     * Binary searches the column offsets, the spacing after a column belongs to the column.
+     *
+     * @param offset distance from the start edge of the first column
+     * @return the column, -1 for offsets outside of the columns.
+     */
+    int getColumnAt(int offset) {
+        if (offset < 0 || offset >= getTotalWidth()) {
+            return -1;
+        }
+        int low = 0;
+        int high = colCount - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
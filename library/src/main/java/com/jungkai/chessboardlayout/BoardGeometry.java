@@ -0,0 +1,416 @@
+package com.jungkai.chessboardlayout;
+
+/**
+ * Cached cell geometry of a {@link ChessBoardLayout}.
+ *
+ * Row heights are filled in by the measure pass, then {@link #computeRowOffsets(int)} turns them
+ * into a prefix-sum table of row tops (row spacing included), so layout and any position to rect
+ * query is O(1) per cell. Offsets are relative to the top padding of the board.
+ *
+ * Items are put into rows by {@code colCount}, or by a {@link SpanSizeLookup}. With a lookup the row,
+ * column and span of every position and the first position of every row are cached in flat tables,
+ * so mapping between positions and cells never walks the items from position 0.
+ *
+ * In uniform mode ({@link #setupUniform}) all rows have the same height, nothing is stored per row
+ * and every offset is computed, so setting up a board without spans costs the same for any item count.
+ */
+class BoardGeometry {
+
+    /**
+     * Measures the cell of an item for {@link #measureRows}, binding its view if needed.
+     */
+    interface CellMeasurer {
+
+        /**
+         * @return the measured height of the cell.
+         */
+        int measureCell(int position);
+    }
+
+    private int colCount = 1;
+
+    private int rowCount;
+
+    private int itemCount;
+
+    /**
+     * Set while the rows come from a {@link SpanSizeLookup} and the position tables below are valid.
+     */
+    private boolean hasSpans;
+
+    private int[] positionRows = new int[0];
+
+    private int[] positionColumns = new int[0];
+
+    private int[] positionSpans = new int[0];
+
+    /**
+     * First position of each row, followed by the item count.
+     */
+    private int[] rowStarts = new int[1];
+
+    private int[] rowHeights = new int[0];
+
+    private int[] rowTops = new int[0];
+
+    /**
+     * Height of every row in uniform mode, -1 when each row has its own height.
+     */
+    private int uniformRowHeight = -1;
+
+    private int rowSpacing;
+
+    void setup(int itemCount, int colCount) {
+        setup(itemCount, colCount, null);
+    }
+
+    /**
+     * Resets the table for a board of {@code itemCount} items laid out in {@code colCount} columns,
+     * with the spans of {@code spanSizeLookup} if it is not null. All row heights are zero afterwards.
+     */
+    void setup(int itemCount, int colCount, SpanSizeLookup spanSizeLookup) {
+        this.colCount = colCount;
+        this.hasSpans = false;
+        assignRows(itemCount, spanSizeLookup, 0);
+        this.uniformRowHeight = -1;
+
+        if (rowHeights.length < rowCount) {
+            rowHeights = new int[rowCount];
+            rowTops = new int[rowCount];
+        } else {
+            for (int i = 0; i < rowCount; i++) {
+                rowHeights[i] = 0;
+                rowTops[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Sets up a board whose rows are all {@code rowHeight} high. The row heights can't be changed
+     * afterwards, call {@link #setup} to leave uniform mode.
+     */
+    void setupUniform(int itemCount, int colCount, SpanSizeLookup spanSizeLookup, int rowHeight, int rowSpacing) {
+        this.colCount = colCount;
+        this.hasSpans = false;
+        assignRows(itemCount, spanSizeLookup, 0);
+        this.uniformRowHeight = rowHeight;
+        this.rowSpacing = rowSpacing;
+    }
+
+    void setUniformRowHeight(int rowHeight) {
+        this.uniformRowHeight = rowHeight;
+    }
+
+    boolean isUniform() {
+        return uniformRowHeight >= 0;
+    }
+
+    void setItemCount(int itemCount) {
+        setItemCount(itemCount, null, itemCount);
+    }
+
+    /**
+     * Changes the item count while keeping the heights of the rows that still exist. Rows added at
+     * the end have a height of zero, or the uniform height. Items from {@code fromPosition} on are
+     * put into rows again, the ones before it must not have changed.
+     *
+     * @return the first row whose items may have changed.
+     */
+    int setItemCount(int itemCount, SpanSizeLookup spanSizeLookup, int fromPosition) {
+        final int oldRowCount = rowCount;
+        final int firstRow = assignRows(itemCount, spanSizeLookup, fromPosition);
+        final int newRowCount = rowCount;
+        if (isUniform()) {
+            return firstRow;
+        }
+        rowCount = oldRowCount;
+
+        if (rowHeights.length < newRowCount) {
+            int[] heights = new int[newRowCount];
+            int[] tops = new int[newRowCount];
+            System.arraycopy(rowHeights, 0, heights, 0, rowCount);
+            System.arraycopy(rowTops, 0, tops, 0, rowCount);
+            rowHeights = heights;
+            rowTops = tops;
+        } else {
+            for (int i = rowCount; i < newRowCount; i++) {
+                rowHeights[i] = 0;
+            }
+        }
+        rowCount = newRowCount;
+        return firstRow;
+    }
+
+    /**
+     * Puts the items from the row of {@code fromPosition - 1} on into rows and updates the row count.
+     *
+     * @return the first row which was assigned again.
+     */
+    private int assignRows(int itemCount, SpanSizeLookup spanSizeLookup, int fromPosition) {
+        final int validCount = Math.min(fromPosition, this.itemCount);
+        this.itemCount = itemCount;
+
+        if (spanSizeLookup == null) {
+            hasSpans = false;
+            rowCount = getRowCount(itemCount, colCount);
+            return validCount / colCount;
+        }
+
+        int row = 0;
+        int position = 0;
+        if (hasSpans && validCount > 0) {
+            // the last kept item may share its row with items which have to move up now
+            row = positionRows[validCount - 1];
+            position = rowStarts[row];
+        }
+        final int firstRow = row;
+
+        if (positionRows.length < itemCount) {
+            final int capacity = Math.max(itemCount, positionRows.length * 2);
+            positionRows = copyOf(positionRows, capacity, position);
+            positionColumns = copyOf(positionColumns, capacity, position);
+            positionSpans = copyOf(positionSpans, capacity, position);
+            rowStarts = copyOf(rowStarts, capacity + 1, row + 1);
+        }
+        hasSpans = true;
+
+        int column = 0;
+        for (; position < itemCount; position++) {
+            final int span = Math.max(1, Math.min(colCount, spanSizeLookup.getSpanSize(position)));
+            if (column + span > colCount) {
+                row++;
+                column = 0;
+            }
+            if (column == 0) {
+                rowStarts[row] = position;
+            }
+            positionRows[position] = row;
+            positionColumns[position] = column;
+            positionSpans[position] = span;
+            column += span;
+        }
+
+        rowCount = itemCount == 0 ? 0 : row + 1;
+        rowStarts[rowCount] = itemCount;
+        return firstRow;
+    }
+
+    private static int[] copyOf(int[] array, int capacity, int count) {
+        int[] copy = new int[capacity];
+        System.arraycopy(array, 0, copy, 0, Math.min(count, array.length));
+        return copy;
+    }
+
+    void clear() {
+        rowCount = 0;
+        itemCount = 0;
+        hasSpans = false;
+    }
+
+    void setRowHeight(int row, int height) {
+        rowHeights[row] = height;
+    }
+
+    /**
+     * Builds the row top table from the current row heights.
+     */
+    void computeRowOffsets(int rowSpacing) {
+        computeRowOffsets(rowSpacing, 0);
+    }
+
+    /**
+     * Measures the cells in position order, sets the height of every row to its tallest cell and
+     * computes the row offsets. The measure pass of the board, minus the binding the measurer does.
+     */
+    void measureRows(CellMeasurer measurer, int rowSpacing) {
+        for (int row = 0; row < rowCount; row++) {
+            int rowHeight = Integer.MIN_VALUE;
+            for (int position = getFirstPositionInRow(row), end = getEndPositionInRow(row); position < end; position++) {
+                rowHeight = Math.max(rowHeight, measurer.measureCell(position));
+            }
+            rowHeights[row] = rowHeight;
+        }
+        computeRowOffsets(rowSpacing);
+    }
+
+    /**
+     * Rebuilds the row top table from {@code fromRow} on, the tops of earlier rows are kept.
+     */
+    void computeRowOffsets(int rowSpacing, int fromRow) {
+        if (isUniform()) {
+            this.rowSpacing = rowSpacing;
+            return;
+        }
+        if (fromRow >= rowCount) {
+            return;
+        }
+        int top = fromRow == 0 ? 0 : getRowBottom(fromRow - 1) + rowSpacing;
+        for (int i = fromRow; i < rowCount; i++) {
+            rowTops[i] = top;
+            top += rowHeights[i] + rowSpacing;
+        }
+    }
+
+    int getColCount() {
+        return colCount;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    int getRowHeight(int row) {
+        return isUniform() ? uniformRowHeight : rowHeights[row];
+    }
+
+    int getRowTop(int row) {
+        return isUniform() ? row * (uniformRowHeight + rowSpacing) : rowTops[row];
+    }
+
+    int getRowBottom(int row) {
+        return getRowTop(row) + getRowHeight(row);
+    }
+
+    int getItemCount() {
+        return itemCount;
+    }
+
+    int getRowForPosition(int position) {
+        return hasSpans ? positionRows[position] : position / colCount;
+    }
+
+    /**
+     * @return the first column of the item.
+     */
+    int getColumnForPosition(int position) {
+        return hasSpans ? positionColumns[position] : position % colCount;
+    }
+
+    int getSpanForPosition(int position) {
+        return hasSpans ? positionSpans[position] : 1;
+    }
+
+    /**
+     * @return the first position of the row, the item count for rows past the last one.
+     */
+    int getFirstPositionInRow(int row) {
+        if (row >= rowCount) {
+            return itemCount;
+        }
+        return hasSpans ? rowStarts[row] : row * colCount;
+    }
+
+    /**
+     * @return the position after the last item of the row.
+     */
+    int getEndPositionInRow(int row) {
+        return getFirstPositionInRow(row + 1);
+    }
+
+    /**
+     * @return the item of the row which covers the given column, -1 if the row ends before it.
+     */
+    int getPositionAt(int row, int column) {
+        if (!hasSpans) {
+            final int position = row * colCount + column;
+            return position < itemCount ? position : -1;
+        }
+        for (int position = rowStarts[row], end = rowStarts[row + 1]; position < end; position++) {
+            if (column < positionColumns[position] + positionSpans[position]) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Computes the cell of an item: all the columns it spans, see {@link BoardColumns#getCellEdges},
+     * and as high as its row.
+     *
+     * @param outBounds gets left, top, right and bottom, relative to the content of the board
+     * @return false if the item or its column is not on the board.
+     */
+    boolean getCellBounds(int position, BoardColumns columns, boolean rtl, int contentWidth, int[] outBounds) {
+        if (position < 0 || position >= itemCount) {
+            return false;
+        }
+        final int column = getColumnForPosition(position);
+        if (column >= columns.getColCount()) {
+            return false;
+        }
+        final int row = getRowForPosition(position);
+        columns.getCellEdges(column, getSpanForPosition(position), rtl, contentWidth, outBounds);
+        outBounds[1] = getRowTop(row);
+        outBounds[3] = getRowBottom(row);
+        return true;
+    }
+
+    /**
+     * Finds the item under a point, the row by {@link #getRowAtOffset} and the column by
+     * {@link BoardColumns#getColumnAt}.
+     *
+     * @param offsetX distance from the start edge of the first column
+     * @param offsetY distance from the top of the first row
+     * @return the position, -1 for points in the spacing between cells or past the last item of a row.
+     */
+    int findPosition(int offsetX, int offsetY, BoardColumns columns) {
+        if (offsetX < 0 || offsetY < 0 || rowCount == 0) {
+            return -1;
+        }
+        final int column = columns.getColumnAt(offsetX);
+        if (column < 0 || column >= colCount) {
+            return -1;
+        }
+        final int row = getRowAtOffset(offsetY);
+        if (offsetY >= getRowBottom(row)) {
+            return -1;
+        }
+        final int position = getPositionAt(row, column);
+        if (position < 0) {
+            return -1;
+        }
+
+        // the spacing inside a spanning cell belongs to the cell
+        final int firstColumn = getColumnForPosition(position);
+        return offsetX < columns.getOffset(firstColumn) + columns.getSpanWidth(firstColumn, getSpanForPosition(position))
+                ? position : -1;
+    }
+
+    /**
+     * Binary searches the row top table, or divides by the row pitch in uniform mode.
+     *
+     * @return the last row starting at or above {@code offset}, 0 for an empty board.
+     */
+    int getRowAtOffset(int offset) {
+        if (isUniform()) {
+            final int pitch = uniformRowHeight + rowSpacing;
+            if (offset <= 0 || pitch <= 0 || rowCount == 0) {
+                return 0;
+            }
+            return Math.min(rowCount - 1, offset / pitch);
+        }
+
+        int low = 0;
+        int high = rowCount - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (rowTops[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return height of all rows including the spacing between them, without padding.
+     */
+    int getTotalHeight() {
+        return rowCount == 0 ? 0 : getRowBottom(rowCount - 1);
+    }
+
+    private static int getRowCount(int itemCount, int colCount) {
+        return itemCount / colCount + ((itemCount % colCount == 0) ? 0 : 1);
+    }
+}
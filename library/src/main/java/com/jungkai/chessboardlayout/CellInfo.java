@@ -0,0 +1,50 @@
+package com.jungkai.chessboardlayout;
+
+import android.view.View;
+
+/**
+ * Bookkeeping a {@link ChessBoardLayout} keeps on each of its cell views.
+ * Created once per view and reused for as long as the view is recycled.
+ */
+class CellInfo {
+
+    int viewType;
+
+    long itemId;
+
+    /**
+     * Width spec of the last measureChild, 0 if the view was never measured by the board.
+     */
+    int widthMeasureSpec;
+
+    /**
+     * Height spec of the last measureChild.
+     */
+    int heightMeasureSpec;
+
+    /**
+     * Set when a ranged change notification asked for a rebind of the item.
+     */
+    boolean dirty;
+
+    boolean accessibilityDelegateInstalled;
+
+    /**
+     * Set while the view fades in by a change animation of the board, which owns its alpha then.
+     */
+    boolean fadingIn;
+
+    /**
+     * Set while the view is detached from the board during a layout pass.
+     */
+    boolean detached;
+
+    static CellInfo of(View view) {
+        CellInfo info = (CellInfo) view.getTag(R.id.chessboard_cell_info);
+        if (info == null) {
+            info = new CellInfo();
+            view.setTag(R.id.chessboard_cell_info, info);
+        }
+        return info;
+    }
+}
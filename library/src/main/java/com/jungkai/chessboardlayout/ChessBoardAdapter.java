@@ -0,0 +1,104 @@
+package com.jungkai.chessboardlayout;
+
+import android.database.DataSetObserver;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+
+import java.util.ArrayList;
+
+/**
+ * BaseAdapter which can notify a {@link ChessBoardLayout} about ranged changes, so that the board
+ * only rebinds and measures the affected items instead of rebuilding everything.
+ *
+ * Observers which are not a {@link ChessBoardDataSetObserver} get {@link DataSetObserver#onChanged()}.
+ */
+public abstract class ChessBoardAdapter extends BaseAdapter {
+
+    private final ArrayList<DataSetObserver> observers = new ArrayList<DataSetObserver>();
+
+    @Override
+    public void registerDataSetObserver(DataSetObserver observer) {
+        super.registerDataSetObserver(observer);
+        observers.add(observer);
+    }
+
+    @Override
+    public void unregisterDataSetObserver(DataSetObserver observer) {
+        super.unregisterDataSetObserver(observer);
+        observers.remove(observer);
+    }
+
+    /**
+     * Updates an already bound view for a payload change. The view has to be updated in place and
+     * keep its size, the board does not measure it again.
+     * By default the item is bound again through {@link #getView(int, View, ViewGroup)}.
+     */
+    public void rebindView(int position, View view, ViewGroup parent, Object payload) {
+        getView(position, view, parent);
+    }
+
+    /**
+     * Creates an unbound view of the given type for {@link ChessBoardLayout#prefetchViews}.
+     * Called on a background thread, so it may only inflate, and
+     * {@link #getView(int, View, ViewGroup)} has to accept the result as convertView.
+     *
+     * @return the view, or null if this adapter does not support prefetching (the default).
+     */
+    public View onCreateView(ViewGroup parent, int viewType) {
+        return null;
+    }
+
+    public void notifyItemChanged(int position) {
+        notifyItemRangeChanged(position, 1, null);
+    }
+
+    public void notifyItemChanged(int position, Object payload) {
+        notifyItemRangeChanged(position, 1, payload);
+    }
+
+    public void notifyItemRangeChanged(int positionStart, int itemCount) {
+        notifyItemRangeChanged(positionStart, itemCount, null);
+    }
+
+    public void notifyItemRangeChanged(int positionStart, int itemCount, Object payload) {
+        for (int i = observers.size() - 1; i >= 0; i--) {
+            final DataSetObserver observer = observers.get(i);
+            if (observer instanceof ChessBoardDataSetObserver) {
+                ((ChessBoardDataSetObserver) observer).onItemRangeChanged(positionStart, itemCount, payload);
+            } else {
+                observer.onChanged();
+            }
+        }
+    }
+
+    public void notifyItemInserted(int position) {
+        notifyItemRangeInserted(position, 1);
+    }
+
+    public void notifyItemRangeInserted(int positionStart, int itemCount) {
+        for (int i = observers.size() - 1; i >= 0; i--) {
+            final DataSetObserver observer = observers.get(i);
+            if (observer instanceof ChessBoardDataSetObserver) {
+                ((ChessBoardDataSetObserver) observer).onItemRangeInserted(positionStart, itemCount);
+            } else {
+                observer.onChanged();
+            }
+        }
+    }
+
+    public void notifyItemRemoved(int position) {
+        notifyItemRangeRemoved(position, 1);
+    }
+
+    public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+        for (int i = observers.size() - 1; i >= 0; i--) {
+            final DataSetObserver observer = observers.get(i);
+            if (observer instanceof ChessBoardDataSetObserver) {
+                ((ChessBoardDataSetObserver) observer).onItemRangeRemoved(positionStart, itemCount);
+            } else {
+                observer.onChanged();
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.jungkai.chessboardlayout;
+
+import android.database.DataSetObserver;
+
+/**
+ * DataSetObserver which can also be told which items of a {@link ChessBoardAdapter} changed.
+ * By default every ranged notification is handled like {@link #onChanged()}.
+ */
+public abstract class ChessBoardDataSetObserver extends DataSetObserver {
+
+    /**
+     * @param payload optional hint for a partial rebind, null for a full rebind of the items.
+     */
+    public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+        onChanged();
+    }
+
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+        onChanged();
+    }
+
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+        onChanged();
+    }
+}
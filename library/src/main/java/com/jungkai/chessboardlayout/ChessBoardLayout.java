@@ -3,25 +3,34 @@ package com.jungkai.chessboardlayout;
 import android.content.Context;
 import android.content.res.Configuration;
 import android.content.res.TypedArray;
-import android.database.DataSetObserver;
+import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.graphics.Rect;
 import android.os.Build;
 import android.os.Bundle;
+import android.support.v4.os.TraceCompat;
 import android.support.v4.view.AccessibilityDelegateCompat;
 import android.support.v4.view.ViewCompat;
+import android.support.v4.view.ViewPropertyAnimatorCompat;
+import android.support.v4.view.accessibility.AccessibilityManagerCompat;
+import android.support.v4.view.accessibility.AccessibilityManagerCompat.AccessibilityStateChangeListenerCompat;
 import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
 import android.util.AttributeSet;
-import android.util.SparseIntArray;
 import android.view.HapticFeedbackConstants;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
 import android.view.accessibility.AccessibilityManager;
 import android.widget.AdapterView;
 import android.widget.BaseAdapter;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  *  To make simple Grid like layout with no recycling, no scrolling.
@@ -51,46 +60,316 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
 
     public static final int TOUCH_MODE_DONE_WAITING = 3;
 
+    /**
+     * Rows are as high as their highest cell.
+     */
+    public static final int UNIFORM_ROW_HEIGHT_NONE = 0;
+
+    /**
+     * Every row is as high as the first item, see {@link #setUniformRowHeight(int)}.
+     */
+    public static final int UNIFORM_ROW_HEIGHT_FIRST_ITEM = -1;
+
+    public static final long DEFAULT_CHANGE_ANIMATION_DURATION = 250;
+
     private ArrayList<View> scrapViews;
 
-    private SparseIntArray rowHeight;
+    private final RecycleBin recycler = new RecycleBin();
+
+    private final MeasureCache measureCache = new MeasureCache();
+
+    private final ViewPrefetcher prefetcher = new ViewPrefetcher(recycler);
+
+    private View[] detachedChildren = new View[0];
+
+    private final BoardGeometry geometry = new BoardGeometry();
+
+    private LayoutStatsListener layoutStatsListener;
+
+    /**
+     * Stats of the running pass, only allocated while a listener is set.
+     */
+    private LayoutStats layoutStats;
+
+    private StrictModeListener strictModeListener;
+
+    /**
+     * Whether the board was laid out or got a data set change since the last frame was drawn, for
+     * strict mode. The pre-draw listener resets them once per frame.
+     */
+    private boolean isLaidOutInFrame;
+
+    private boolean isDataSetChangedInFrame;
+
+    /**
+     * Stack trace of the first layout request after the layout pass of this frame, the cause of
+     * the layout loop the next pass reports.
+     */
+    private Throwable layoutRequestTrace;
+
+    private final ViewTreeObserver.OnPreDrawListener strictModeFrameListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            clearStrictModeFrame();
+            return true;
+        }
+    };
+
+    private final StaggeredGeometry staggeredGeometry = new StaggeredGeometry();
 
     private BaseAdapter adapter;
 
     private int colCount;
 
+    private SpanSizeLookup spanSizeLookup;
+
     private boolean isDataChanged;
 
     private int colSpacing;
 
     private int rowSpacing;
 
-    private int childWidth;
+    /**
+     * Offsets and widths of the columns, from the last measure pass.
+     */
+    private final BoardColumns columns = new BoardColumns();
+
+    private float[] columnWeights;
+
+    /**
+     * Minimum cell width the column count is derived from, 0 to use colCount as it is.
+     */
+    private int minCellWidth;
+
+    /**
+     * Column count of the last measure pass, colCount or the one derived from minCellWidth.
+     */
+    private int resolvedColCount;
 
+    /**
+     * Width the cells were split from by the last measure pass, -1 if the columns were fitted.
+     */
+    private int lastAvailableWidth = -1;
+
+    private boolean autoFitColumns;
+
+    /**
+     * Set while the measure pass sizes the columns to their cells, with a width which is not exact
+     * or in auto-fit mode.
+     */
+    private boolean isFittingColumns;
+
+    /**
+     * Measured width of the board.
+     */
     private int totalWidth;
 
+    /**
+     * Resolved layout direction of the board, updated by onRtlPropertiesChanged.
+     */
+    private boolean layoutRtl;
+
+    /**
+     * Start edge of each column: its left edge, or its right edge in a right to left layout.
+     */
+    private int[] columnStarts = new int[0];
+
+    /**
+     * Left, top, right and bottom of a cell, see {@link #getCellBounds}.
+     */
+    private final int[] cellBounds = new int[4];
+
     private int selectedPosition;
 
     private View selectedView;
 
     private int touchMode = TOUCH_MODE_NONE;
 
-    private CheckForLongPress pendingCheckForLongPress;
+    // touch callbacks are created once and reposted, so that tapping does not allocate
+
+    private final CheckForLongPress pendingCheckForLongPress = new CheckForLongPress();
 
-    private CheckForTap pendingCheckForTap;
+    private final CheckForTap pendingCheckForTap = new CheckForTap();
 
-    private Runnable touchModeReset;
+    private final TouchModeReset touchModeReset = new TouchModeReset();
 
-    private PerformClick performClick;
+    private final PerformClick performClick = new PerformClick();
+
+    private final ShowPendingPosition showPendingPosition = new ShowPendingPosition();
+
+    /**
+     * Position to bring on screen after the pending layout pass, see requestPositionVisible.
+     */
+    private int pendingVisiblePosition = INVALID_POSITION;
+
+    private final Rect itemRect = new Rect();
 
     private AccessibilityManager accessibilityManager;
 
     private AdapterDataSetObserver dataSetObserver;
 
-    private BoardItemAccessibilityDelegate accessbilityDeledate;
+    private final BoardItemAccessibilityDelegate accessibilityDelegate = new BoardItemAccessibilityDelegate();
+
+    private boolean accessibilityEnabled;
+
+    private final AccessibilityStateChangeListenerCompat accessibilityStateChangeListener =
+            new AccessibilityStateChangeListenerCompat() {
+                @Override
+                public void onAccessibilityStateChanged(boolean enabled) {
+                    accessibilityEnabled = enabled;
+                    if (enabled && scrapViews != null) {
+                        for (int i = 0; i < scrapViews.size(); i++) {
+                            View child = scrapViews.get(i);
+                            if (child != null) {
+                                installAccessibilityDelegate(child);
+                            }
+                        }
+                    }
+                }
+            };
 
     private int widthMeasureSpecMode;
 
+    private boolean isLayoutChanged;
+
+    /**
+     * Set by setters which change how the items are put into rows and columns, but not the items.
+     * The next measure pass puts the bound views into rows again without binding them.
+     */
+    private boolean isGeometryChanged;
+
+    /**
+     * Set by a measure pass which measured all bound views for the coming layout pass, after a data
+     * or geometry change. A parent measuring the board again before the layout reuses them.
+     */
+    private boolean isLayoutPending;
+
+    /**
+     * Set by a measure pass which bound the items again for a data change, for the layout stats.
+     */
+    private boolean isRebuildPending;
+
+    /**
+     * Nesting depth of beginUpdate, layout requests are held back while it is above 0.
+     */
+    private int updateDepth;
+
+    private boolean isLayoutRequestDeferred;
+
+    private int uniformRowHeight = UNIFORM_ROW_HEIGHT_NONE;
+
+    /**
+     * Height of every row in uniform mode, -1 until the measure pass resolved it.
+     */
+    private int resolvedRowHeight = -1;
+
+    private boolean windowed;
+
+    private boolean staggered;
+
+    /**
+     * Paints of the row and column dividers, null while the dividers are off.
+     */
+    private Paint rowDividerPaint;
+
+    private Paint colDividerPaint;
+
+    private float[] rowDividerLines = new float[0];
+
+    private float[] colDividerLines = new float[0];
+
+    private int rowDividerLineCount;
+
+    private int colDividerLineCount;
+
+    private final Rect clipBounds = new Rect();
+
+    private boolean animateChanges;
+
+    private long changeAnimationDuration = DEFAULT_CHANGE_ANIMATION_DURATION;
+
+    private boolean changeAnimationLayers;
+
+    /**
+     * Set by adapter notifications, the next full layout pass animates the cells to their new places.
+     */
+    private boolean isChangeAnimationPending;
+
+    private int windowMargin;
+
+    /**
+     * Rows whose cells are attached as children, every row unless windowed.
+     */
+    private int firstAttachedRow;
+
+    private int lastAttachedRow = -1;
+
+    private final Rect visibleRect = new Rect();
+
+    /**
+     * Measure the cells of a data change and of a geometry change for BoardGeometry#measureRows.
+     */
+    private final BoardGeometry.CellMeasurer rebuildMeasurer = new BoardGeometry.CellMeasurer() {
+        @Override
+        public int measureCell(int position) {
+            return measureItemForRebuild(position);
+        }
+    };
+
+    private final BoardGeometry.CellMeasurer remeasurer = new BoardGeometry.CellMeasurer() {
+        @Override
+        public int measureCell(int position) {
+            return remeasureItem(position, canUseMeasureCache());
+        }
+    };
+
+    private final ViewTreeObserver.OnScrollChangedListener windowScrollListener = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            updateWindow();
+        }
+    };
+
+    private final ViewTreeObserver.OnPreDrawListener windowPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            updateWindow();
+            return true;
+        }
+    };
+
+    /**
+     * Range of items which got a ranged change or insert notification since the last measure.
+     */
+    private int firstDirtyPosition = Integer.MAX_VALUE;
+
+    private int lastDirtyPosition = -1;
+
+    /**
+     * First item whose row moved because of an insert or remove since the last measure.
+     */
+    private int firstShiftedPosition = Integer.MAX_VALUE;
+
+    /**
+     * Rows of children which requested a layout and were measured again, laid out again by onLayout
+     * without a full pass.
+     */
+    private int firstRelayoutRow = Integer.MAX_VALUE;
+
+    private int lastRelayoutRow = -1;
+
+    /**
+     * Set when a row height changed with the relayout rows, so that the rows below them moved.
+     */
+    private boolean isRowOffsetChanged;
+
+    /**
+     * Rows before a geometry change, only saved while layout stats are collected.
+     */
+    private int[] previousRowTops = new int[0];
+
+    private int[] previousRowHeights = new int[0];
+
     enum FocusDirection {
         FOCUS_UP, FOCUS_DOWN
     }
@@ -112,10 +391,13 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
 
     private void init(AttributeSet attrs) {
         accessibilityManager = (AccessibilityManager) getContext().getSystemService(Context.ACCESSIBILITY_SERVICE);
+        accessibilityEnabled = accessibilityManager.isEnabled();
 
         setWillNotDraw(true);
         setFocusable(true);
 
+        windowMargin = getResources().getDisplayMetrics().heightPixels / 2;
+
         if (attrs != null) {
 
             TypedArray a = getContext().obtainStyledAttributes(attrs, R.styleable.ChessBoardLayout);
@@ -126,202 +408,1495 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
 
             rowSpacing = a.getDimensionPixelSize(R.styleable.ChessBoardLayout_rowSpacing, 0);
 
+            windowed = a.getBoolean(R.styleable.ChessBoardLayout_windowed, false);
+
+            staggered = a.getBoolean(R.styleable.ChessBoardLayout_staggered, false);
+
+            animateChanges = a.getBoolean(R.styleable.ChessBoardLayout_animateChanges, false);
+
+            autoFitColumns = a.getBoolean(R.styleable.ChessBoardLayout_autoFitColumns, false);
+
+            minCellWidth = a.getDimensionPixelSize(R.styleable.ChessBoardLayout_minCellWidth, 0);
+
+            columnWeights = parseColumnWeights(a.getString(R.styleable.ChessBoardLayout_columnWeights));
+
+            setRowDividerColor(a.getColor(R.styleable.ChessBoardLayout_rowDividerColor, 0));
+
+            setColDividerColor(a.getColor(R.styleable.ChessBoardLayout_colDividerColor, 0));
+
+            windowMargin = a.getDimensionPixelSize(R.styleable.ChessBoardLayout_windowMargin, windowMargin);
+
+            uniformRowHeight = a.getLayoutDimension(R.styleable.ChessBoardLayout_uniformRowHeight, UNIFORM_ROW_HEIGHT_NONE);
+
             a.recycle();
         }
     }
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        totalWidth = MeasureSpec.getSize(widthMeasureSpec);
+        TraceCompat.beginSection("ChessBoardLayout measure");
+        final LayoutStats stats = layoutStats;
+        if (stats != null) {
+            stats.begin(LayoutStats.PASS_MEASURE, false, recycler);
+        }
+
+        measureBoard(widthMeasureSpec, heightMeasureSpec);
+
+        if (stats != null) {
+            stats.end(recycler);
+            layoutStatsListener.onLayoutStats(this, stats);
+        }
+        TraceCompat.endSection();
+    }
+
+    private void measureBoard(int widthMeasureSpec, int heightMeasureSpec) {
         widthMeasureSpecMode = MeasureSpec.getMode(widthMeasureSpec);
 
         final int horizontalPadding = getPaddingLeft() + getPaddingRight();
         final int verticalPadding = getPaddingTop() + getPaddingBottom();
 
-        final int availableWidth = totalWidth - horizontalPadding;
+        final int availableWidth = MeasureSpec.getSize(widthMeasureSpec) - horizontalPadding;
 
-        if (rowHeight == null) {
-            rowHeight = new SparseIntArray();
-        } else {
-            rowHeight.clear();
+        // without a width to derive it from, the column count is the one set
+        final int newColCount = minCellWidth > 0 && widthMeasureSpecMode != MeasureSpec.UNSPECIFIED
+                ? BoardColumns.countColumns(availableWidth, minCellWidth, colSpacing)
+                : colCount;
+        if (newColCount != resolvedColCount) {
+            resolvedColCount = newColCount;
+            isGeometryChanged = true;
         }
 
         if (adapter == null) {
+            geometry.clear();
             super.onMeasure(widthMeasureSpec, heightMeasureSpec);
             return;
         }
 
-        if (colCount < 1) {
+        if (resolvedColCount < 1) {
             throw new IllegalStateException("colCount should be equals or more than 1");
         }
 
         int totalCount = adapter.getCount();
-        if (scrapViews == null || isDataChanged) {
+        if (scrapViews == null) {
             scrapViews = new ArrayList<View>(totalCount);
+            isDataChanged = true;
+        } else if (isDataChanged || scrapViews.size() != totalCount) {
+            // a count the board was not told about can't be patched, rebuild
+            isDataChanged = true;
+            recycleScrapViews();
+            scrapViews.ensureCapacity(totalCount);
+        }
+
+        // columns of a known width are split before the cells are measured, fitted ones after
+        isFittingColumns = widthMeasureSpecMode != MeasureSpec.EXACTLY || autoFitColumns;
+        final int cellsFromWidth = isFittingColumns ? -1 : availableWidth;
+        if (cellsFromWidth != lastAvailableWidth) {
+            // e.g. a rotation: the bound views are measured again at the new cell widths
+            isGeometryChanged = true;
+            lastAvailableWidth = cellsFromWidth;
+        }
+        if (!isFittingColumns) {
+            // a staggered item gets its column by its height, which depends on its width
+            columns.split(resolvedColCount, availableWidth, colSpacing, staggered ? null : columnWeights);
+        } else if (isDataChanged || isGeometryChanged || columns.getColCount() != resolvedColCount) {
+            columns.beginFit(resolvedColCount, colSpacing);
+        }
+
+        if (isDataChanged && staggered) {
+            measureStaggered(totalCount);
+        } else if (isDataChanged && uniformRowHeight != UNIFORM_ROW_HEIGHT_NONE) {
+            measureUniformRows(totalCount);
+        } else if (isDataChanged) {
+            measureAllRows(totalCount);
+        } else if (isGeometryChanged) {
+            remeasureRows(totalCount);
+        } else {
+            // a child asking for a layout climbs up to the board, the other children are not measured.
+            // The views of a pending rebuild keep asking until they are laid out, they are measured.
+            boolean measured = false;
+            if (isLayoutRequested() && !isLayoutPending) {
+                measureRequestedChildren();
+                measured = true;
+            }
+            if (lastDirtyPosition >= 0 || firstShiftedPosition < Integer.MAX_VALUE) {
+                measureDirtyRows(totalCount);
+                measured = true;
+            }
+            if (measured && isFittingColumns && !isWindowing()) {
+                refitColumns();
+            }
+        }
+
+        if (isDataChanged || isGeometryChanged) {
+            // consumed, another measure pass with the same specs before the layout binds nothing
+            isLayoutPending = true;
+            isRebuildPending |= isDataChanged;
+            isLayoutChanged = true;
+            isDataChanged = false;
+            isGeometryChanged = false;
+        }
+
+        if (isFittingColumns) {
+            // without an exact width the columns are as wide as the widest cell, so that the board
+            // width does not depend on the order the cells were measured in
+            columns.finishFit(!autoFitColumns);
+        }
+
+        int totalHeight = staggered ? staggeredGeometry.getTotalHeight() : geometry.getTotalHeight();
+
+        int totalWidth = MeasureSpec.getSize(widthMeasureSpec);
+        int totalHeightWithPadding = MeasureSpec.getSize(heightMeasureSpec);
+
+        if (widthMeasureSpecMode != MeasureSpec.EXACTLY) {
+            final int contentWidth = columns.getTotalWidth() + horizontalPadding;
+            totalWidth = widthMeasureSpecMode == MeasureSpec.AT_MOST ? Math.min(totalWidth, contentWidth) : contentWidth;
+        }
+
+        if (MeasureSpec.getMode(heightMeasureSpec) != MeasureSpec.EXACTLY) {
+            totalHeightWithPadding = verticalPadding + totalHeight; //setMeasuredDimension(totalWidth, verticalPadding + totalHeight);
+        }
+
+        setMeasuredDimension(totalWidth, totalHeightWithPadding);
+        this.totalWidth = totalWidth;
+
+        computeColumnStarts();
+    }
+
+    private void computeColumnStarts() {
+        final int colCount = columns.getColCount();
+        if (columnStarts.length < colCount) {
+            columnStarts = new int[colCount];
+        }
+        final int rightEdge = totalWidth - getPaddingRight();
+        final int paddingLeft = getPaddingLeft();
+        for (int column = 0; column < colCount; column++) {
+            columnStarts[column] = layoutRtl
+                    ? rightEdge - columns.getOffset(column)
+                    : paddingLeft + columns.getOffset(column);
+        }
+    }
+
+    @Override
+    public void onRtlPropertiesChanged(int layoutDirection) {
+        super.onRtlPropertiesChanged(layoutDirection);
+
+        final boolean rtl = layoutDirection == LAYOUT_DIRECTION_RTL;
+        if (layoutRtl != rtl) {
+            layoutRtl = rtl;
+            isLayoutChanged = true;
+            requestLayout();
+        }
+    }
+
+    private void measureAllRows(int totalCount) {
+        geometry.setup(totalCount, resolvedColCount, spanSizeLookup);
+        geometry.measureRows(rebuildMeasurer, rowSpacing);
+        recycler.scrapActiveViews();
+
+        if (layoutStats != null) {
+            layoutStats.fullRebuild = true;
+            layoutStats.changedRowCount += geometry.getRowCount();
+        }
+
+        clearDirtyPositions();
+    }
+
+    /**
+     * Binds and measures the item for measureAllRows. A windowed board only measures it, the rows
+     * in the window are bound again in onLayout.
+     */
+    private int measureItemForRebuild(int position) {
+        View child;
+        if (windowed) {
+            scrapViews.add(null);
+
+            final int cachedHeight = canUseMeasureCache()
+                    ? measureCache.get(adapter.getItemId(position), getCellWidthMeasureSpec(position))
+                    : MeasureCache.NO_HEIGHT;
+            if (cachedHeight != MeasureCache.NO_HEIGHT) {
+                return cachedHeight;
+            }
+
+            child = bindView(position);
+            recycler.addScrapView(child);
+        } else {
+            child = obtainView(position);
+        }
+        fitColumn(child, position);
+        return child.getMeasuredHeight();
+    }
+
+    /**
+     * Binds and measures every item and places it at the top of the shortest column.
+     */
+    private void measureStaggered(int totalCount) {
+        resolvedRowHeight = -1;
+        geometry.clear();
+        staggeredGeometry.setup(totalCount, resolvedColCount, spanSizeLookup);
+
+        for (int position = 0; position < totalCount; position++) {
+            View child = obtainView(position);
+            staggeredGeometry.place(position, child.getMeasuredHeight(), rowSpacing);
+            fitColumn(child, position);
+        }
+        recycler.scrapActiveViews();
+        if (layoutStats != null) {
+            layoutStats.fullRebuild = true;
+        }
+
+        clearDirtyPositions();
+    }
+
+    /**
+     * Sets up rows of the uniform height without binding the items, at most the first item is bound
+     * to get the row height or the cell width. The cells are bound in onLayout, all of them or only
+     * the ones in the window.
+     */
+    private void measureUniformRows(int totalCount) {
+        resolvedRowHeight = uniformRowHeight == UNIFORM_ROW_HEIGHT_FIRST_ITEM ? -1 : uniformRowHeight;
+        geometry.setupUniform(totalCount, resolvedColCount, spanSizeLookup, Math.max(0, resolvedRowHeight), rowSpacing);
+
+        if (totalCount > 0 && (resolvedRowHeight < 0 || isFittingColumns)) {
+            View first;
+            if (windowed) {
+                first = bindView(0);
+                recycler.addScrapView(first);
+            } else {
+                first = obtainView(0);
+            }
+            fitColumn(first, 0);
+            if (resolvedRowHeight < 0) {
+                resolvedRowHeight = first.getMeasuredHeight();
+                geometry.setUniformRowHeight(resolvedRowHeight);
+            }
+        }
+
+        // the cells are bound in onLayout, the size tells a second measure pass that nothing changed
+        scrapViews.addAll(Collections.<View>nCopies(totalCount - scrapViews.size(), null));
+        if (layoutStats != null) {
+            layoutStats.fullRebuild = true;
+            layoutStats.changedRowCount += geometry.getRowCount();
+        }
+
+        clearDirtyPositions();
+    }
+
+    /**
+     * Puts the bound views into rows again after a geometry setter, without binding them again.
+     * A view is only measured again if its cell size changed, so a spacing change only moves the
+     * cells. Pending ranged changes are bound on the way.
+     */
+    private void remeasureRows(int totalCount) {
+        final boolean useMeasureCache = canUseMeasureCache();
+        final int previousRowCount = layoutStats != null ? saveRowBounds() : 0;
+
+        // the attached views stay attached, in whichever rows they end up
+        final int attachedStart = isWindowing() ? getAttachedStartPosition() : 0;
+        final int attachedEnd = isWindowing() ? getAttachedEndPosition() : 0;
+
+        if (staggered) {
+            resolvedRowHeight = -1;
+            geometry.clear();
+            staggeredGeometry.setup(totalCount, resolvedColCount, spanSizeLookup);
+            for (int position = 0; position < totalCount; position++) {
+                staggeredGeometry.place(position, remeasureItem(position, useMeasureCache), rowSpacing);
+                fitColumn(scrapViews.get(position), position);
+            }
+        } else if (uniformRowHeight != UNIFORM_ROW_HEIGHT_NONE) {
+            resolvedRowHeight = uniformRowHeight == UNIFORM_ROW_HEIGHT_FIRST_ITEM ? -1 : uniformRowHeight;
+            if (uniformRowHeight == UNIFORM_ROW_HEIGHT_FIRST_ITEM && totalCount > 0) {
+                // the first item gives the height at the new cell width
+                resolvedRowHeight = remeasureItem(0, false);
+            }
+            geometry.setupUniform(totalCount, resolvedColCount, spanSizeLookup, Math.max(0, resolvedRowHeight), rowSpacing);
+            final int first = uniformRowHeight == UNIFORM_ROW_HEIGHT_FIRST_ITEM ? 1 : 0;
+            for (int position = first; position < totalCount; position++) {
+                remeasureItem(position, useMeasureCache);
+            }
+        } else {
+            geometry.setup(totalCount, resolvedColCount, spanSizeLookup);
+            geometry.measureRows(remeasurer, rowSpacing);
+        }
+        recycler.scrapActiveViews();
+        if (layoutStats != null && !staggered) {
+            layoutStats.changedRowCount += countChangedRows(previousRowCount);
+        }
+
+        if (isWindowing() && attachedStart < attachedEnd) {
+            firstAttachedRow = geometry.getRowForPosition(attachedStart);
+            lastAttachedRow = geometry.getRowForPosition(attachedEnd - 1);
+        } else if (isWindowing() && getChildCount() > 0) {
+            // staggered mode attached every item, the layout pass recycles the ones outside the window
+            firstAttachedRow = 0;
+            lastAttachedRow = geometry.getRowCount() - 1;
+        }
+
+        clearDirtyPositions();
+        isLayoutChanged = true;
+    }
+
+    /**
+     * Keeps the row tops and heights for countChangedRows.
+     *
+     * @return the row count.
+     */
+    private int saveRowBounds() {
+        final int rowCount = geometry.getRowCount();
+        if (previousRowTops.length < rowCount) {
+            previousRowTops = new int[rowCount];
+            previousRowHeights = new int[rowCount];
+        }
+        for (int row = 0; row < rowCount; row++) {
+            previousRowTops[row] = geometry.getRowTop(row);
+            previousRowHeights[row] = geometry.getRowHeight(row);
+        }
+        return rowCount;
+    }
+
+    /**
+     * @return the rows which are new or moved or changed their height since saveRowBounds.
+     */
+    private int countChangedRows(int previousRowCount) {
+        final int rowCount = geometry.getRowCount();
+        int changedRowCount = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (row >= previousRowCount || previousRowTops[row] != geometry.getRowTop(row)
+                    || previousRowHeights[row] != geometry.getRowHeight(row)) {
+                changedRowCount++;
+            }
+        }
+        return changedRowCount;
+    }
+
+    /**
+     * @return the height of the item at its current cell size. A bound view is measured if its
+     * cell size changed, an item which is not bound in windowed mode is measured like
+     * measureAllRows does it.
+     */
+    private int remeasureItem(int position, boolean useMeasureCache) {
+        View child = scrapViews.get(position);
+        if (child == null && isWindowing()) {
+            if (resolvedRowHeight >= 0) {
+                // uniform rows don't need the height of an item
+                return resolvedRowHeight;
+            }
+            final int cachedHeight = useMeasureCache
+                    ? measureCache.get(adapter.getItemId(position), getCellWidthMeasureSpec(position))
+                    : MeasureCache.NO_HEIGHT;
+            if (cachedHeight != MeasureCache.NO_HEIGHT) {
+                return cachedHeight;
+            }
+            child = bindView(position);
+            recycler.addScrapView(child);
+        } else if (child == null || CellInfo.of(child).dirty) {
+            child = rebindView(position, child);
+            scrapViews.set(position, child);
+        } else {
+            final LayoutParams p = getChildLayoutParams(child);
+            final int childWidthSpec = getChildWidthMeasureSpec(position, p);
+            final CellInfo info = CellInfo.of(child);
+            if (child.isLayoutRequested() || info.widthMeasureSpec != childWidthSpec
+                    || info.heightMeasureSpec != getChildHeightMeasureSpec(p)) {
+                measureChild(child, position, p, childWidthSpec);
+            }
+        }
+        if (!staggered) {
+            // a staggered item gets its column when it is placed
+            fitColumn(child, position);
+        }
+        return child.getMeasuredHeight();
+    }
+
+    /**
+     * Rebinds and measures only the items of ranged change notifications, then updates the rows
+     * they are in and the offsets of the rows below.
+     */
+    private void measureDirtyRows(int totalCount) {
+        // items keep their rows up to the first change, unless spans moved them
+        final int firstChangedRow;
+        if (staggered) {
+            staggeredGeometry.setup(totalCount, resolvedColCount, spanSizeLookup);
+            firstChangedRow = 0;
+        } else {
+            firstChangedRow = geometry.setItemCount(totalCount, spanSizeLookup,
+                    Math.min(firstDirtyPosition, firstShiftedPosition));
+        }
+
+        final int lastDirty = Math.min(lastDirtyPosition, totalCount - 1);
+        for (int position = firstDirtyPosition; position <= lastDirty; position++) {
+            View child = scrapViews.get(position);
+            if (child == null || CellInfo.of(child).dirty) {
+                child = rebindView(position, child);
+                scrapViews.set(position, child);
+            }
+        }
+
+        if (staggered) {
+            // placing is cheap, the items keep their measured heights
+            for (int position = 0; position < totalCount; position++) {
+                staggeredGeometry.place(position, scrapViews.get(position).getMeasuredHeight(), rowSpacing);
+            }
+        } else if (!geometry.isUniform()) {
+            final int firstRow = firstChangedRow;
+            final int lastRow = firstShiftedPosition < Integer.MAX_VALUE || spanSizeLookup != null
+                    ? geometry.getRowCount() - 1 : geometry.getRowForPosition(lastDirty);
+
+            for (int row = firstRow; row <= lastRow; row++) {
+                int childMaxHeightPerRow = Integer.MIN_VALUE;
+                final int end = geometry.getEndPositionInRow(row);
+                for (int position = geometry.getFirstPositionInRow(row); position < end; position++) {
+                    childMaxHeightPerRow = Math.max(childMaxHeightPerRow, scrapViews.get(position).getMeasuredHeight());
+                }
+                if (layoutStats != null && childMaxHeightPerRow != geometry.getRowHeight(row)) {
+                    layoutStats.changedRowCount++;
+                }
+                geometry.setRowHeight(row, childMaxHeightPerRow);
+            }
+
+            geometry.computeRowOffsets(rowSpacing, firstRow);
+        }
+        clearDirtyPositions();
+        isLayoutChanged = true;
+    }
+
+    /**
+     * Measures the bound children which requested a layout and updates the heights of their rows.
+     * With ranged changes pending or in staggered mode their positions are marked dirty instead, so
+     * that measureDirtyRows takes their new heights into account.
+     */
+    private void measureRequestedChildren() {
+        final boolean markDirty = staggered || lastDirtyPosition >= 0 || firstShiftedPosition < Integer.MAX_VALUE;
+        final int start = isWindowing() ? getAttachedStartPosition() : 0;
+        final int end = isWindowing() ? getAttachedEndPosition() : scrapViews.size();
+
+        int firstChangedRow = Integer.MAX_VALUE;
+        for (int position = start; position < end; position++) {
+            final View child = scrapViews.get(position);
+            if (child == null || !child.isLayoutRequested() || CellInfo.of(child).dirty) {
+                continue;
+            }
+
+            LayoutParams p = getChildLayoutParams(child);
+            measureChild(child, position, p, getChildWidthMeasureSpec(position, p));
+
+            if (markDirty) {
+                markPositionDirty(position);
+                continue;
+            }
+            fitColumn(child, position);
+
+            final int row = geometry.getRowForPosition(position);
+            firstRelayoutRow = Math.min(firstRelayoutRow, row);
+            lastRelayoutRow = Math.max(lastRelayoutRow, row);
+            if (geometry.isUniform()) {
+                continue;
+            }
+
+            int childMaxHeightPerRow = Integer.MIN_VALUE;
+            for (int i = geometry.getFirstPositionInRow(row), rowEnd = geometry.getEndPositionInRow(row); i < rowEnd; i++) {
+                childMaxHeightPerRow = Math.max(childMaxHeightPerRow, scrapViews.get(i).getMeasuredHeight());
+            }
+            if (childMaxHeightPerRow != geometry.getRowHeight(row)) {
+                geometry.setRowHeight(row, childMaxHeightPerRow);
+                firstChangedRow = Math.min(firstChangedRow, row);
+                if (layoutStats != null) {
+                    layoutStats.changedRowCount++;
+                }
+            }
+        }
+
+        if (firstChangedRow != Integer.MAX_VALUE) {
+            geometry.computeRowOffsets(rowSpacing, firstChangedRow);
+            isRowOffsetChanged = true;
+        }
+    }
+
+    private View rebindView(int position, View oldChild) {
+        final int viewType = adapter.getItemViewType(position);
+        final long itemId = adapter.getItemId(position);
+
+        View convertView = oldChild;
+        if (oldChild != null) {
+            CellInfo info = CellInfo.of(oldChild);
+            info.dirty = false;
+            if (info.viewType != viewType) {
+                recycler.addScrapView(oldChild);
+                convertView = null;
+            }
+        }
+        if (convertView == null) {
+            convertView = recycler.getConvertView(position, viewType, itemId);
+        }
+
+        View child = adapter.getView(position, convertView, this);
+        recycler.onViewBound(child, convertView, viewType);
+        checkConvertView(position, convertView, child);
+
+        final CellInfo info = CellInfo.of(child);
+        info.itemId = itemId;
+
+        LayoutParams p = getChildLayoutParams(child);
+        measureChild(child, position, p, getChildWidthMeasureSpec(position, p));
+
+        if (accessibilityEnabled && !info.accessibilityDelegateInstalled) {
+            installAccessibilityDelegate(child);
+        }
+        return child;
+    }
+
+    private void markPositionDirty(int position) {
+        firstDirtyPosition = Math.min(firstDirtyPosition, position);
+        lastDirtyPosition = Math.max(lastDirtyPosition, position);
+    }
+
+    private void clearDirtyPositions() {
+        firstDirtyPosition = Integer.MAX_VALUE;
+        lastDirtyPosition = -1;
+        firstShiftedPosition = Integer.MAX_VALUE;
+    }
+
+    private View obtainView(int position) {
+        View child = canUseScrapView(position) ? scrapViews.get(position) : null;
+        if (child != null) {
+            return child;
+        }
+
+        child = bindView(position);
+        if (position < scrapViews.size()) {
+            // a uniform cell which was only measured as a row
+            scrapViews.set(position, child);
+        } else {
+            scrapViews.add(position, child);
+        }
+        return child;
+    }
+
+    /**
+     * Binds the item at the given position to a recycled view if there is one, and measures it.
+     */
+    private View bindView(int position) {
+        final int viewType = adapter.getItemViewType(position);
+        final long itemId = adapter.getItemId(position);
+        final View convertView = recycler.getConvertView(position, viewType, itemId);
+
+        View child = adapter.getView(position, convertView, this);
+        recycler.onViewBound(child, convertView, viewType);
+        checkConvertView(position, convertView, child);
+
+        final CellInfo info = CellInfo.of(child);
+        final boolean sameItem = child == convertView && adapter.hasStableIds() && info.itemId == itemId;
+        info.itemId = itemId;
+        info.dirty = false;
+
+        LayoutParams p = getChildLayoutParams(child);
+        int childWidthSpec = getChildWidthMeasureSpec(position, p);
+
+        // a rebound item keeps its size unless the bind changed its content size or the cell size changed
+        if (!sameItem || child.isLayoutRequested() || info.widthMeasureSpec != childWidthSpec
+                || info.heightMeasureSpec != getChildHeightMeasureSpec(p)) {
+            measureChild(child, position, p, childWidthSpec);
+        }
+
+        if (accessibilityEnabled && !info.accessibilityDelegateInstalled) {
+            installAccessibilityDelegate(child);
+        }
+
+        return child;
+    }
+
+    /**
+     * Installs the shared item delegate, once per view for as long as the view is recycled.
+     */
+    private void installAccessibilityDelegate(View child) {
+        final CellInfo info = CellInfo.of(child);
+        if (info.accessibilityDelegateInstalled) {
+            return;
+        }
+        info.accessibilityDelegateInstalled = true;
+
+        if (ViewCompat.getImportantForAccessibility(child) == ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_AUTO) {
+            ViewCompat.setImportantForAccessibility(child, ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_YES);
+        }
+        ViewCompat.setAccessibilityDelegate(child, accessibilityDelegate);
+    }
+
+    private void recycleScrapViews() {
+        recycler.fillActiveViews(scrapViews, adapter != null && adapter.hasStableIds());
+        scrapViews.clear();
+    }
+
+    private boolean canApplyRangedChange(int positionStart, int itemCount) {
+        // the first item gives the row height of a board with UNIFORM_ROW_HEIGHT_FIRST_ITEM
+        return !isDataChanged && !windowed && scrapViews != null && positionStart >= 0
+                && !(positionStart == 0 && uniformRowHeight == UNIFORM_ROW_HEIGHT_FIRST_ITEM)
+                && positionStart + itemCount <= scrapViews.size();
+    }
+
+    private boolean canUseScrapView(int position) {
+        return scrapViews.size() != 0 && scrapViews.size() > position;
+    }
+
+    private LayoutParams getChildLayoutParams(View child) {
+        LayoutParams p = child.getLayoutParams();
+
+        if (p == null) {
+            p = generateDefaultLayoutParams();
+            child.setLayoutParams(p);
+        }
+        return p;
+    }
+
+    /**
+     * @return the width spec the board offers the cell of the item, which covers its spanned
+     * columns and the spacing between them.
+     */
+    private int getCellWidthMeasureSpec(int position) {
+        if (!isFittingColumns) {
+            // staggered columns are all as wide
+            final int column = staggered ? 0 : geometry.getColumnForPosition(position);
+            return MeasureSpec.makeMeasureSpec(columns.getSpanWidth(column, getSpan(position)), MeasureSpec.EXACTLY);
+        } else {
+            return MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+        }
+    }
+
+    private int getChildWidthMeasureSpec(int position, LayoutParams p) {
+        return getChildMeasureSpec(getCellWidthMeasureSpec(position), 0, p.width);
+    }
+
+    /**
+     * Widens the column of the item to its measured cell while the columns are fitted.
+     */
+    private void fitColumn(View child, int position) {
+        if (isFittingColumns) {
+            final int column = staggered ? staggeredGeometry.getColumn(position) : geometry.getColumnForPosition(position);
+            columns.fitCell(column, getSpan(position), child.getMeasuredWidth());
+        }
+    }
+
+    /**
+     * Fits the columns to the bound cells again. A changed, removed or shrunk cell may have been
+     * the widest of its column, which fitColumn alone can only widen.
+     */
+    private void refitColumns() {
+        columns.beginFit(resolvedColCount, colSpacing);
+        for (int position = 0, count = scrapViews.size(); position < count; position++) {
+            final View child = scrapViews.get(position);
+            if (child != null) {
+                fitColumn(child, position);
+            }
+        }
+    }
+
+    private int getSpan(int position) {
+        return staggered ? staggeredGeometry.getSpan(position) : geometry.getSpanForPosition(position);
+    }
+
+    /**
+     * A cached height stands in for an item which is not bound in windowed mode, the cache is only
+     * read and filled then. Fitted columns need the width of every cell, they measure the items.
+     */
+    private boolean canUseMeasureCache() {
+        return isWindowing() && adapter.hasStableIds() && !isFittingColumns;
+    }
+
+    /**
+     * Staggered items are not in rows, a staggered board attaches all of them.
+     */
+    private boolean isWindowing() {
+        return windowed && !staggered;
+    }
+
+    /**
+     * @return the height spec of a cell, bounded by the row height in uniform mode.
+     */
+    private int getChildHeightMeasureSpec(LayoutParams p) {
+        if (resolvedRowHeight >= 0) {
+            return getChildMeasureSpec(MeasureSpec.makeMeasureSpec(resolvedRowHeight, MeasureSpec.EXACTLY), 0, p.height);
+        } else {
+            return getChildMeasureSpec(MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), 0, p.height);
+        }
+    }
+
+    private void measureChild(View child, int position, LayoutParams p, int childWidthSpec) {
+        int childHeightSpec = getChildHeightMeasureSpec(p);
+
+        child.measure(childWidthSpec, childHeightSpec);
+        if (layoutStats != null) {
+            layoutStats.measuredChildCount++;
+        }
+
+        final CellInfo info = CellInfo.of(child);
+        info.widthMeasureSpec = childWidthSpec;
+        info.heightMeasureSpec = childHeightSpec;
+        if (canUseMeasureCache() && resolvedRowHeight < 0) {
+            measureCache.put(info.itemId, getCellWidthMeasureSpec(position), child.getMeasuredHeight());
+        }
+    }
+
+    /**
+     * Forgets all cached cell heights. Call this when the adapter changed the content of items
+     * without changing their stable ids in a way that changes their size. Only windowed boards with
+     * stable ids cache heights, for the items outside the window.
+     */
+    public void invalidateMeasureCache() {
+        measureCache.clear();
+    }
+
+    /**
+     * Forgets the cached heights of one item, see {@link #invalidateMeasureCache()}.
+     */
+    public void invalidateMeasureCache(long itemId) {
+        measureCache.invalidate(itemId);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        if (strictModeListener != null) {
+            checkLayoutLoop();
+        }
+
+        TraceCompat.beginSection("ChessBoardLayout layout");
+        final LayoutStats stats = layoutStats;
+        if (stats != null) {
+            stats.begin(LayoutStats.PASS_LAYOUT, adapter != null && (isDataChanged || isRebuildPending), recycler);
+        }
+
+        layoutBoard();
+
+        if (stats != null) {
+            stats.end(recycler);
+            layoutStatsListener.onLayoutStats(this, stats);
+        }
+        TraceCompat.endSection();
+    }
+
+    private void layoutBoard() {
+        if (adapter != null && (isDataChanged || isLayoutChanged)) {
+
+            // detach instead of remove, so that views which stay on the board are not
+            // dispatched a window detach and attach
+            final int oldChildCount = getChildCount();
+            if (detachedChildren.length < oldChildCount) {
+                detachedChildren = new View[oldChildCount];
+            }
+            for (int i = 0; i < oldChildCount; i++) {
+                View child = getChildAt(i);
+                CellInfo.of(child).detached = true;
+                detachedChildren[i] = child;
+            }
+            detachAllViewsFromParent();
+
+            // the first layout of the board has nothing to animate from
+            final boolean animate = animateChanges && isChangeAnimationPending && oldChildCount > 0;
+
+            final int firstPosition;
+            final int endPosition;
+            if (isWindowing()) {
+                final int oldFirstPosition = getAttachedStartPosition();
+                final int oldEndPosition = getAttachedEndPosition();
+                updateWindowRows();
+                firstPosition = getAttachedStartPosition();
+                endPosition = getAttachedEndPosition();
+
+                // views bound for an earlier window go back to the bin, the ones still in the window stay bound
+                for (int position = oldFirstPosition; position < oldEndPosition; position++) {
+                    View child = scrapViews.get(position);
+                    if (child != null && (position < firstPosition || position >= endPosition)) {
+                        scrapViews.set(position, null);
+                        recycler.addScrapView(child);
+                    }
+                }
+            } else {
+                // not scrapViews.size(), a uniform board binds its items only now
+                firstAttachedRow = 0;
+                lastAttachedRow = geometry.getRowCount() - 1;
+                firstPosition = 0;
+                endPosition = staggered ? staggeredGeometry.getItemCount() : geometry.getItemCount();
+            }
+
+            for (int i = firstPosition; i < endPosition; i++) {
+                View child = isWindowing() ? bindWindowView(i) : obtainView(i);
+                CellInfo info = CellInfo.of(child);
+
+                LayoutParams p = child.getLayoutParams();
+
+                if (p == null) {
+                    p = generateDefaultLayoutParams();
+                }
+
+                final boolean wasAttached = info.detached;
+                if (info.detached) {
+                    info.detached = false;
+                    attachViewToParent(child, i - firstPosition, p);
+                } else {
+                    addViewInLayout(child, i - firstPosition, p, true);
+                }
+
+                if (animate) {
+                    // where the cell is drawn now, in the middle of an earlier animation too
+                    final float fromX = child.getLeft() + ViewCompat.getTranslationX(child);
+                    final float fromY = child.getTop() + ViewCompat.getTranslationY(child);
+                    layoutChild(child, i);
+                    animateChange(child, wasAttached, fromX, fromY);
+                } else {
+                    layoutChild(child, i);
+                }
+            }
+            // a screen of views is all the board reuses at once, e.g. late prefetched views beyond are dropped
+            recycler.setMaxScrapViews(Math.max(1, getChildCount()));
+            recycler.scrapActiveViews();
+
+            for (int i = 0; i < oldChildCount; i++) {
+                View child = detachedChildren[i];
+                CellInfo info = CellInfo.of(child);
+                if (info.detached) {
+                    info.detached = false;
+                    removeDetachedView(child, false);
+                    if (animateChanges) {
+                        clearChangeAnimation(child);
+                    }
+                }
+                detachedChildren[i] = null;
+            }
+
+            isDataChanged = false;
+            isLayoutChanged = false;
+            isLayoutPending = false;
+            isRebuildPending = false;
+            isChangeAnimationPending = false;
+            clearRelayoutRows();
+        } else if (adapter != null && lastRelayoutRow >= 0) {
+            relayoutRequestedRows();
+        }
+
+        if (pendingVisiblePosition != INVALID_POSITION) {
+            // after the parents are laid out too, so that a scrolling parent knows its new range
+            removeCallbacks(showPendingPosition);
+            post(showPendingPosition);
+        }
+    }
+
+    /**
+     * Moves a laid out cell back to where it was drawn before the layout with a translation and
+     * animates the translation to zero, so that the animation does not lay out again. A cell which
+     * was not attached before fades in.
+     */
+    private void animateChange(View child, boolean wasAttached, float fromX, float fromY) {
+        final CellInfo info = CellInfo.of(child);
+        if (info.fadingIn && ViewCompat.getAlpha(child) == 1) {
+            info.fadingIn = false;
+        }
+        final float translationX = wasAttached ? fromX - child.getLeft() : 0;
+        final float translationY = wasAttached ? fromY - child.getTop() : 0;
+        if (wasAttached && translationX == 0 && translationY == 0 && !info.fadingIn) {
+            return;
+        }
+
+        final ViewPropertyAnimatorCompat animator = ViewCompat.animate(child);
+        animator.cancel();
+        ViewCompat.setTranslationX(child, translationX);
+        ViewCompat.setTranslationY(child, translationY);
+        animator.translationX(0).translationY(0);
+
+        // alpha is left to the adapter, unless the cell is new or was still fading in
+        if (!wasAttached || info.fadingIn) {
+            if (!wasAttached) {
+                ViewCompat.setAlpha(child, 0);
+            }
+            info.fadingIn = true;
+            animator.alpha(1);
+        }
+
+        animator.setDuration(changeAnimationDuration);
+        if (changeAnimationLayers) {
+            animator.withLayer();
+        }
+        animator.start();
+    }
+
+    /**
+     * Stops the change animation of a cell which leaves the board, so that it is reused in place.
+     */
+    private void clearChangeAnimation(View child) {
+        ViewCompat.animate(child).cancel();
+        ViewCompat.setTranslationX(child, 0);
+        ViewCompat.setTranslationY(child, 0);
+
+        final CellInfo info = CellInfo.of(child);
+        if (info.fadingIn) {
+            info.fadingIn = false;
+            ViewCompat.setAlpha(child, 1);
+        }
+    }
+
+    /**
+     * Lays out the rows of measureRequestedChildren again and moves the children of the rows below
+     * them if a row height changed. Children of other rows keep their layout.
+     */
+    private void relayoutRequestedRows() {
+        final int start = isWindowing() ? getAttachedStartPosition() : 0;
+        final int end = isRowOffsetChanged
+                ? (isWindowing() ? getAttachedEndPosition() : scrapViews.size())
+                : Math.min(scrapViews.size(), geometry.getEndPositionInRow(lastRelayoutRow));
+        final int paddingTop = getPaddingTop();
+
+        for (int position = Math.max(start, geometry.getFirstPositionInRow(firstRelayoutRow)); position < end; position++) {
+            final View child = scrapViews.get(position);
+            if (child == null) {
+                continue;
+            }
+            final int row = geometry.getRowForPosition(position);
+            if (row <= lastRelayoutRow) {
+                layoutChild(child, position);
+            } else {
+                final int offset = paddingTop + geometry.getRowTop(row) - child.getTop();
+                if (offset != 0) {
+                    child.offsetTopAndBottom(offset);
+                }
+            }
+        }
+        clearRelayoutRows();
+        invalidate();
+    }
+
+    /**
+     * Reports a second layout pass in one frame, blaming the first child which asked for it.
+     */
+    private void checkLayoutLoop() {
+        if (isLaidOutInFrame) {
+            int position = -1;
+            if (scrapViews != null) {
+                for (int i = 0; i < scrapViews.size(); i++) {
+                    final View child = scrapViews.get(i);
+                    if (child != null && child.isLayoutRequested()) {
+                        position = i;
+                        break;
+                    }
+                }
+            }
+            final String message = position < 0
+                    ? "board laid out twice in one frame"
+                    : "layout requested by position " + position + " during the layout pass";
+            strictModeListener.onViolation(this, new StrictModeViolation(StrictModeViolation.TYPE_LAYOUT_LOOP,
+                    position, message, layoutRequestTrace));
+        }
+        layoutRequestTrace = null;
+        isLaidOutInFrame = isDrawingFrames();
+    }
+
+    private void clearStrictModeFrame() {
+        isLaidOutInFrame = false;
+        isDataSetChangedInFrame = false;
+        layoutRequestTrace = null;
+    }
+
+    /**
+     * @return false while the window of the board does not draw, so that no pre-draw ends a frame.
+     */
+    private boolean isDrawingFrames() {
+        return getWindowVisibility() == VISIBLE;
+    }
+
+    /**
+     * Reports a getView call which got a convertView and returned another view.
+     */
+    private void checkConvertView(int position, View convertView, View child) {
+        if (strictModeListener != null && convertView != null && child != convertView) {
+            reportViolation(StrictModeViolation.TYPE_CONVERT_VIEW_IGNORED, position,
+                    "getView of position " + position + " did not reuse its convertView");
+        }
+    }
+
+    private void reportViolation(int type, int position, String message) {
+        strictModeListener.onViolation(this, new StrictModeViolation(type, position, message));
+    }
+
+    private void clearRelayoutRows() {
+        firstRelayoutRow = Integer.MAX_VALUE;
+        lastRelayoutRow = -1;
+        isRowOffsetChanged = false;
+    }
+
+    private void layoutChild(View child, int position) {
+        if (!getCellBounds(position, cellBounds)) {
+            return;
+        }
+
+        // cells start at their column, so that a spanning cell lines up with the cells below it
+        final int paddingLeft = getPaddingLeft();
+        final int paddingTop = getPaddingTop();
+        final int width = child.getMeasuredWidth();
+        final int left = paddingLeft + (layoutRtl ? cellBounds[2] - width : cellBounds[0]);
+
+        child.layout(left, paddingTop + cellBounds[1], left + width, paddingTop + cellBounds[3]);
+    }
+
+    /**
+     * Computes the cell of an item from the geometry of the last measure pass, see
+     * {@link BoardGeometry#getCellBounds}.
+     */
+    private boolean getCellBounds(int position, int[] outBounds) {
+        final int contentWidth = totalWidth - getPaddingLeft() - getPaddingRight();
+        return staggered
+                ? staggeredGeometry.getCellBounds(position, columns, layoutRtl, contentWidth, outBounds)
+                : geometry.getCellBounds(position, columns, layoutRtl, contentWidth, outBounds);
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        // works with willNotDraw, dispatchDraw is called for the children anyway
+        if ((rowDividerPaint != null || colDividerPaint != null) && adapter != null && columns.getColCount() > 0) {
+            drawDividers(canvas);
+        }
+        super.dispatchDraw(canvas);
+    }
+
+    /**
+     * Draws the dividers into the spacing between cells from the cached geometry, all row dividers
+     * with one drawLines and all column dividers with another. The dividers fill the spacing, and
+     * column dividers stop at cells spanning the column gap.
+     */
+    private void drawDividers(Canvas canvas) {
+        canvas.getClipBounds(clipBounds);
+        if (staggered) {
+            collectStaggeredDividers();
+        } else {
+            collectGridDividers();
+        }
+
+        if (rowDividerPaint != null && rowDividerLineCount > 0) {
+            rowDividerPaint.setStrokeWidth(rowSpacing);
+            canvas.drawLines(rowDividerLines, 0, rowDividerLineCount * 4, rowDividerPaint);
+        }
+        if (colDividerPaint != null && colDividerLineCount > 0) {
+            colDividerPaint.setStrokeWidth(colSpacing);
+            canvas.drawLines(colDividerLines, 0, colDividerLineCount * 4, colDividerPaint);
+        }
+    }
+
+    /**
+     * Collects the dividers of the rows in the clip bounds.
+     */
+    private void collectGridDividers() {
+        rowDividerLineCount = 0;
+        colDividerLineCount = 0;
+        final int rowCount = geometry.getRowCount();
+        if (rowCount == 0) {
+            return;
+        }
+
+        final int paddingTop = getPaddingTop();
+        final int firstRow = geometry.getRowAtOffset(clipBounds.top - paddingTop - rowSpacing);
+        final int lastRow = geometry.getRowAtOffset(clipBounds.bottom - paddingTop);
+        final float left = getContentLeft();
+        final float right = left + columns.getTotalWidth();
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            final int top = paddingTop + geometry.getRowTop(row);
+            final int bottom = paddingTop + geometry.getRowBottom(row);
+            if (rowDividerPaint != null && row < rowCount - 1 && rowSpacing > 0) {
+                final float y = bottom + rowSpacing / 2f;
+                addRowDivider(left, y, right, y);
+            }
+            if (colDividerPaint != null && colSpacing > 0) {
+                // a gap after each cell but the last one of the row
+                final int end = geometry.getEndPositionInRow(row) - 1;
+                for (int position = geometry.getFirstPositionInRow(row); position < end; position++) {
+                    final float x = getColumnGapCenter(geometry.getColumnForPosition(position)
+                            + geometry.getSpanForPosition(position));
+                    addColDivider(x, top, x, bottom);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the dividers between the items of each column, and between the columns next to the
+     * items which don't span the full width.
+     */
+    private void collectStaggeredDividers() {
+        rowDividerLineCount = 0;
+        colDividerLineCount = 0;
+
+        final int paddingTop = getPaddingTop();
+        final float contentLeft = getContentLeft();
+        final float contentRight = contentLeft + columns.getTotalWidth();
+        final int colCount = columns.getColCount();
+        for (int column = 0; column < colCount; column++) {
+            final float left = getColumnLeft(column);
+            final int count = staggeredGeometry.getColumnItemCount(column);
+            for (int i = 0; i < count; i++) {
+                final int position = staggeredGeometry.getColumnItem(column, i);
+                final int top = paddingTop + staggeredGeometry.getTop(position);
+                final int bottom = i < count - 1
+                        ? paddingTop + staggeredGeometry.getTop(staggeredGeometry.getColumnItem(column, i + 1))
+                        : paddingTop + staggeredGeometry.getBottom(position);
+                if (bottom < clipBounds.top || top > clipBounds.bottom) {
+                    continue;
+                }
+
+                // a full span item is in every column, its divider is drawn once across the board
+                final boolean fullSpan = staggeredGeometry.getSpan(position) > 1;
+                if (rowDividerPaint != null && i < count - 1 && rowSpacing > 0 && !(fullSpan && column > 0)) {
+                    final float y = paddingTop + staggeredGeometry.getBottom(position) + rowSpacing / 2f;
+                    if (fullSpan) {
+                        addRowDivider(contentLeft, y, contentRight, y);
+                    } else {
+                        addRowDivider(left, y, left + columns.getWidth(column), y);
+                    }
+                }
+                if (colDividerPaint != null && column < colCount - 1 && colSpacing > 0 && !fullSpan) {
+                    final float x = getColumnGapCenter(column + 1);
+                    addColDivider(x, top, x, bottom);
+                }
+            }
+        }
+    }
+
+    private float getColumnLeft(int column) {
+        return layoutRtl ? columnStarts[column] - columns.getWidth(column) : columnStarts[column];
+    }
+
+    private float getContentLeft() {
+        return layoutRtl ? columnStarts[0] - columns.getTotalWidth() : columnStarts[0];
+    }
+
+    /**
+     * @return the middle of the spacing before the given column.
+     */
+    private float getColumnGapCenter(int column) {
+        return layoutRtl ? columnStarts[column] + colSpacing / 2f : columnStarts[column] - colSpacing / 2f;
+    }
+
+    private void addRowDivider(float startX, float startY, float stopX, float stopY) {
+        final int offset = rowDividerLineCount * 4;
+        if (offset + 4 > rowDividerLines.length) {
+            rowDividerLines = growLines(rowDividerLines);
+        }
+        rowDividerLines[offset] = startX;
+        rowDividerLines[offset + 1] = startY;
+        rowDividerLines[offset + 2] = stopX;
+        rowDividerLines[offset + 3] = stopY;
+        rowDividerLineCount++;
+    }
+
+    private void addColDivider(float startX, float startY, float stopX, float stopY) {
+        final int offset = colDividerLineCount * 4;
+        if (offset + 4 > colDividerLines.length) {
+            colDividerLines = growLines(colDividerLines);
+        }
+        colDividerLines[offset] = startX;
+        colDividerLines[offset + 1] = startY;
+        colDividerLines[offset + 2] = stopX;
+        colDividerLines[offset + 3] = stopY;
+        colDividerLineCount++;
+    }
+
+    private static float[] growLines(float[] lines) {
+        final float[] grown = new float[Math.max(64, lines.length * 2)];
+        System.arraycopy(lines, 0, grown, 0, lines.length);
+        return grown;
+    }
+
+    private int getAttachedStartPosition() {
+        return Math.min(scrapViews.size(), geometry.getFirstPositionInRow(firstAttachedRow));
+    }
+
+    private int getAttachedEndPosition() {
+        return Math.min(scrapViews.size(), geometry.getEndPositionInRow(lastAttachedRow));
+    }
+
+    /**
+     * @return the bound view of the given position, null if it is not bound (e.g. outside the window).
+     */
+    private View getViewForPosition(int position) {
+        if (scrapViews == null || position < 0 || position >= scrapViews.size()) {
+            return null;
+        }
+        return scrapViews.get(position);
+    }
+
+    private View bindWindowView(int position) {
+        View child = scrapViews.get(position);
+        if (child == null) {
+            child = bindView(position);
+            scrapViews.set(position, child);
+        }
+        return child;
+    }
+
+    /**
+     * Computes the rows which intersect the visible part of the board plus the window margin.
+     */
+    private void updateWindowRows() {
+        final int rowCount = geometry.getRowCount();
+        if (rowCount == 0) {
+            firstAttachedRow = 0;
+            lastAttachedRow = -1;
+            return;
+        }
+
+        int visibleTop;
+        int visibleBottom;
+        if (getLocalVisibleRect(visibleRect)) {
+            visibleTop = visibleRect.top;
+            visibleBottom = visibleRect.bottom;
+        } else if (lastAttachedRow >= firstAttachedRow && lastAttachedRow < rowCount) {
+            // off screen, keep what we have
+            return;
+        } else {
+            visibleTop = 0;
+            visibleBottom = getResources().getDisplayMetrics().heightPixels;
         }
 
-        childWidth = (availableWidth - (colSpacing * (colCount - 1))) / colCount;
+        final int paddingTop = getPaddingTop();
+        firstAttachedRow = geometry.getRowAtOffset(Math.max(0, visibleTop - paddingTop - windowMargin));
+        lastAttachedRow = geometry.getRowAtOffset(Math.max(0, visibleBottom - paddingTop + windowMargin));
+    }
 
-        int totalHeight = 0;
-        int rowIdx = 0;
-        int realPosition;
-        int childMaxHeightPerRow = Integer.MIN_VALUE;
-        View child;
-        for (int i = 0; i < totalCount; i += colCount, rowIdx++, childMaxHeightPerRow = Integer.MIN_VALUE) {
-            for (int j = 0; j < colCount; j++) {
-                realPosition = i + j;
-                child = realPosition < totalCount ? obtainView(realPosition) : null;
-                if(child != null) {
-                    childMaxHeightPerRow = Math.max(childMaxHeightPerRow, child.getMeasuredHeight());
-                    if (widthMeasureSpecMode != MeasureSpec.EXACTLY) {
-                        childWidth = child.getMeasuredWidth();
-                    }
-                }
-            }
-            rowHeight.put(rowIdx, childMaxHeightPerRow);
-            totalHeight += childMaxHeightPerRow;
+    /**
+     * Attaches and detaches rows after the visible part of the board changed, without a layout pass.
+     */
+    private void updateWindow() {
+        if (!isWindowing() || adapter == null || scrapViews == null
+                || isDataChanged || isLayoutChanged || isGeometryChanged || isLayoutRequested()) {
+            return;
         }
 
-        if (totalCount > 0) {
-            int rowCount = scrapViews.size() / colCount + ((scrapViews.size() % colCount == 0) ? 0 : 1);
-            totalHeight = totalHeight + (rowCount - 1) * rowSpacing;
+        final int oldFirstRow = firstAttachedRow;
+        final int oldLastRow = lastAttachedRow;
+        updateWindowRows();
+        if (oldFirstRow == firstAttachedRow && oldLastRow == lastAttachedRow) {
+            return;
         }
 
-        int totalWidth = MeasureSpec.getSize(widthMeasureSpec);
-        int totalHeightWithPadding = MeasureSpec.getSize(heightMeasureSpec);
+        final int newFirstRow = firstAttachedRow;
+        final int newLastRow = lastAttachedRow;
 
-        if (widthMeasureSpecMode != MeasureSpec.EXACTLY) {
-            totalWidth = childWidth * colCount + (colSpacing * (colCount - 1)) + horizontalPadding;
+        int first = oldFirstRow;
+        int last = oldLastRow;
+        while (first <= last && first < newFirstRow) {
+            detachWindowRow(first++, true);
         }
-
-        if (MeasureSpec.getMode(heightMeasureSpec) != MeasureSpec.EXACTLY) {
-            totalHeightWithPadding = verticalPadding + totalHeight; //setMeasuredDimension(totalWidth, verticalPadding + totalHeight);
+        while (last >= first && last > newLastRow) {
+            detachWindowRow(last--, false);
+        }
+        if (first > last) {
+            first = newFirstRow;
+            last = newFirstRow - 1;
+        }
+        while (first > newFirstRow) {
+            attachWindowRow(--first, true);
+        }
+        while (last < newLastRow) {
+            attachWindowRow(++last, false);
         }
 
-        setMeasuredDimension(totalWidth, totalHeightWithPadding);
+        invalidate();
     }
 
-    private View obtainView(int position) {
-        View child;
-        if (canUseScrapView(position) || !isDataChanged) {
-            child = scrapViews.get(position);
-        } else {
-
-            child = adapter.getView(position, null, this);
-
-            LayoutParams p = getChildLayoutParams(child);
-            measureChild(child, p);
-
-            scrapViews.add(position, child);
+    private void detachWindowRow(int row, boolean fromStart) {
+        final int start = geometry.getFirstPositionInRow(row);
+        final int end = Math.min(scrapViews.size(), geometry.getEndPositionInRow(row));
+        for (int position = start; position < end; position++) {
+            View child = scrapViews.get(position);
+            if (child == null) {
+                continue;
+            }
+            if (fromStart) {
+                removeViewsInLayout(0, 1);
+            } else {
+                removeViewsInLayout(getChildCount() - 1, 1);
+            }
+            scrapViews.set(position, null);
+            recycler.addScrapView(child);
+            if (animateChanges) {
+                clearChangeAnimation(child);
+            }
         }
+    }
 
-        if (ViewCompat.getImportantForAccessibility(child) == ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_AUTO) {
-            ViewCompat.setImportantForAccessibility(child, ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_YES);
+    private void attachWindowRow(int row, boolean atStart) {
+        final int start = geometry.getFirstPositionInRow(row);
+        final int end = Math.min(scrapViews.size(), geometry.getEndPositionInRow(row));
+        for (int position = start; position < end; position++) {
+            View child = bindWindowView(position);
+            addViewInLayout(child, atStart ? position - start : -1, getChildLayoutParams(child), true);
+            layoutChild(child, position);
         }
+    }
 
-        if (accessibilityManager.isEnabled()) {
-            accessbilityDeledate = new BoardItemAccessibilityDelegate();
-            ViewCompat.setAccessibilityDelegate(child, accessbilityDeledate);
+    public void setWindowed(boolean windowed) {
+        boolean needRequest = this.windowed != windowed;
+        this.windowed = windowed;
+        if (needRequest && getWindowToken() != null) {
+            if (windowed) {
+                addWindowListeners();
+            } else {
+                removeWindowListeners();
+            }
         }
-
-        return child;
+        // the bound views are kept, the layout pass attaches the window or every row
+        requestGeometryLayoutIfNeeded(needRequest);
     }
 
-    private boolean canUseScrapView(int position) {
-        return scrapViews.size() != 0 && scrapViews.size() > position;
+    public boolean isWindowed() {
+        return this.windowed;
     }
 
-    private LayoutParams getChildLayoutParams(View child) {
-        LayoutParams p = child.getLayoutParams();
-
-        if (p == null) {
-            p = generateDefaultLayoutParams();
-            child.setLayoutParams(p);
-        }
-        return p;
+    public void setWindowMargin(int windowMargin) {
+        this.windowMargin = windowMargin;
+        updateWindow();
     }
 
-    private void measureChild(View child, LayoutParams p) {
-        int childHeightSpec = getChildMeasureSpec(
-                MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), 0, p.height);
-        int childWidthSpec;
-        if (widthMeasureSpecMode == MeasureSpec.EXACTLY) {
-            childWidthSpec = getChildMeasureSpec(
-                    MeasureSpec.makeMeasureSpec(childWidth, MeasureSpec.EXACTLY), 0, p.width);
-        } else {
-            childWidthSpec = getChildMeasureSpec(
-                    MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), 0, p.width);
-        }
+    public int getWindowMargin() {
+        return this.windowMargin;
+    }
 
-        child.measure(childWidthSpec, childHeightSpec);
+    private void addWindowListeners() {
+        getViewTreeObserver().addOnScrollChangedListener(windowScrollListener);
+        getViewTreeObserver().addOnPreDrawListener(windowPreDrawListener);
     }
 
-    @Override
-    protected void onLayout(boolean changed, int l, int t, int r, int b) {
-        if (adapter != null && adapter.getCount() > 0 && isDataChanged) {
+    private void removeWindowListeners() {
+        getViewTreeObserver().removeOnScrollChangedListener(windowScrollListener);
+        getViewTreeObserver().removeOnPreDrawListener(windowPreDrawListener);
+    }
 
-            final int paddingStart = getPaddingLeft();
-            final int paddingTop = getPaddingTop();
+    /**
+     * Makes every row the given height, so that the board measures without binding its items: the
+     * height of the board and the offset of every row are computed from the item count. Cells are
+     * measured against the row height. Pass {@link #UNIFORM_ROW_HEIGHT_FIRST_ITEM} to take the
+     * height of the first item, which is then the only item bound by the measure pass, or
+     * {@link #UNIFORM_ROW_HEIGHT_NONE} to size each row by its highest cell again.
+     */
+    public void setUniformRowHeight(int uniformRowHeight) {
+        boolean needRequest = this.uniformRowHeight != uniformRowHeight;
+        this.uniformRowHeight = uniformRowHeight;
+        if (needRequest) {
+            resolvedRowHeight = -1;
+        }
+        requestGeometryLayoutIfNeeded(needRequest);
+    }
 
-            int rowIdx = -1;
+    public int getUniformRowHeight() {
+        return this.uniformRowHeight;
+    }
 
-            removeAllViewsInLayout();
+    /**
+     * Reports the cost of every following measure and layout pass to the listener, see
+     * {@link LayoutStats}. Stats are only collected while a listener is set.
+     */
+    public void setLayoutStatsListener(LayoutStatsListener listener) {
+        this.layoutStatsListener = listener;
+        if (listener == null) {
+            layoutStats = null;
+        } else if (layoutStats == null) {
+            layoutStats = new LayoutStats();
+        }
+    }
 
-            for (int i = 0; i < adapter.getCount(); i++) {
-                View child = obtainView(i);
+    public LayoutStatsListener getLayoutStatsListener() {
+        return this.layoutStatsListener;
+    }
 
-                int leftIdx = i % colCount;
+    /**
+     * Turns on strict mode, which reports costly uses of the board to the listener: an adapter
+     * which does not reuse its convertView, layout passes which request another layout and
+     * notifyDataSetChanged called several times in one frame. Each {@link StrictModeViolation} has
+     * the position it is about and the stack trace of its cause. Meant for debug builds, null turns it off.
+     */
+    public void setStrictModeListener(StrictModeListener listener) {
+        final boolean wasStrict = strictModeListener != null;
+        this.strictModeListener = listener;
+        clearStrictModeFrame();
+        if (wasStrict != (listener != null) && getWindowToken() != null) {
+            if (listener != null) {
+                getViewTreeObserver().addOnPreDrawListener(strictModeFrameListener);
+            } else {
+                getViewTreeObserver().removeOnPreDrawListener(strictModeFrameListener);
+            }
+        }
+    }
 
-                if (leftIdx == 0) {
-                    rowIdx++;
-                }
+    public StrictModeListener getStrictModeListener() {
+        return this.strictModeListener;
+    }
 
-                LayoutParams p = child.getLayoutParams();
+    /**
+     * Animates the cells to their new places after the adapter inserted, removed, moved or resized
+     * items: each cell is laid out once at its new place and slides there from its old place by its
+     * translation, cells of new items fade in. The animations only draw again, they don't lay out.
+     * Cells move with their items if the adapter has stable ids or notifies ranged changes.
+     */
+    public void setAnimateChanges(boolean animateChanges) {
+        this.animateChanges = animateChanges;
+    }
 
-                if (p == null) {
-                    p = generateDefaultLayoutParams();
-                }
+    public boolean isAnimateChanges() {
+        return this.animateChanges;
+    }
 
-                addViewInLayout(child, i, p, true);
+    public void setChangeAnimationDuration(long changeAnimationDuration) {
+        this.changeAnimationDuration = changeAnimationDuration;
+    }
 
-                int start;
+    public long getChangeAnimationDuration() {
+        return this.changeAnimationDuration;
+    }
 
-                if (LayoutUtils.isLayoutRTL(getContext())) {
-                    start = totalWidth - paddingStart - ((leftIdx + 1) * child.getMeasuredWidth());
-                } else {
-                    start = paddingStart + (leftIdx * child.getMeasuredWidth());
-                }
+    /**
+     * Draws the animated cells into hardware layers for the time of the change animation, which
+     * makes the frames of complex cells cheaper.
+     */
+    public void setChangeAnimationLayers(boolean changeAnimationLayers) {
+        this.changeAnimationLayers = changeAnimationLayers;
+    }
 
-                int topWithoutPadding = 0;
+    public boolean isChangeAnimationLayers() {
+        return this.changeAnimationLayers;
+    }
 
-                for (int j = 0; j < rowIdx; j++) {
-                    topWithoutPadding += rowHeight.get(j);
-                }
+    /**
+     * Draws a line of the given color into the row spacing between each two rows, 0 for none.
+     * Dividers are drawn by the board itself, the cells don't need borders for them.
+     */
+    public void setRowDividerColor(int color) {
+        rowDividerPaint = createDividerPaint(color);
+        invalidate();
+    }
 
-                int top = paddingTop + topWithoutPadding;
+    public int getRowDividerColor() {
+        return rowDividerPaint != null ? rowDividerPaint.getColor() : 0;
+    }
 
-                if (leftIdx > 0) {
-                    if (LayoutUtils.isLayoutRTL(getContext())) {
-                        start -= colSpacing * leftIdx;
-                    } else {
-                        start += colSpacing * leftIdx;
-                    }
-                }
+    /**
+     * Draws a line of the given color into the column spacing between each two cells of a row, 0
+     * for none.
+     */
+    public void setColDividerColor(int color) {
+        colDividerPaint = createDividerPaint(color);
+        invalidate();
+    }
 
-                if (rowIdx > 0) {
-                    top += rowSpacing * rowIdx;
-                }
-                child.layout(start, top, start + child.getMeasuredWidth(), top + rowHeight.get(rowIdx));
-            }
+    public int getColDividerColor() {
+        return colDividerPaint != null ? colDividerPaint.getColor() : 0;
+    }
 
-            isDataChanged = false;
+    private static Paint createDividerPaint(int color) {
+        if (color == 0) {
+            return null;
         }
+        final Paint paint = new Paint();
+        paint.setColor(color);
+        return paint;
     }
 
     public void setRowSpacing(int rowSpacing) {
         boolean needRequest = this.rowSpacing != rowSpacing;
         this.rowSpacing = rowSpacing;
-        requestLayoutIfNeeded(needRequest);
+        requestGeometryLayoutIfNeeded(needRequest);
     }
 
     public int getRowSpacing() {
@@ -331,23 +1906,111 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
     public void setColSpacing(int colSpacing) {
         boolean needRequest = this.colSpacing != colSpacing;
         this.colSpacing = colSpacing;
-        requestLayoutIfNeeded(needRequest);
+        requestGeometryLayoutIfNeeded(needRequest);
     }
 
     public int getColSpacing() {
         return this.colSpacing;
     }
 
+    /**
+     * Splits the width of the board into columns in proportion to the given weights, e.g.
+     * {@code 2, 1, 1} makes the first of three columns half of the board. Columns without a weight
+     * weigh 1, null makes all columns as wide. Weights apply to boards of an exact width which are
+     * not staggered, see {@link #setAutoFitColumns}.
+     */
+    public void setColumnWeights(float... columnWeights) {
+        this.columnWeights = columnWeights;
+        requestGeometryLayoutIfNeeded(true);
+    }
+
+    public float[] getColumnWeights() {
+        return this.columnWeights;
+    }
+
+    /**
+     * Makes each column as wide as its widest cell, which is measured without a width limit, in a
+     * single measure pass. Cells spanning several columns don't widen them. Without auto-fit a board
+     * whose width is not exact makes every column as wide as the widest cell.
+     */
+    public void setAutoFitColumns(boolean autoFitColumns) {
+        boolean needRequest = this.autoFitColumns != autoFitColumns;
+        this.autoFitColumns = autoFitColumns;
+        requestGeometryLayoutIfNeeded(needRequest);
+    }
+
+    public boolean isAutoFitColumns() {
+        return this.autoFitColumns;
+    }
+
+    private static float[] parseColumnWeights(String weights) {
+        if (weights == null || weights.trim().length() == 0) {
+            return null;
+        }
+        final String[] values = weights.split(",");
+        final float[] columnWeights = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            columnWeights[i] = Float.parseFloat(values[i].trim());
+        }
+        return columnWeights;
+    }
+
+    /**
+     * Derives the column count from the width of the board in each measure pass: as many columns
+     * as fit at least {@code minCellWidth} wide, at least one. The derived count is laid out
+     * instead of the one of {@link #setColCount}, which {@link #getColCount} keeps returning and
+     * which is laid out again when 0 turns it off. A width change, e.g. a rotation, measures the
+     * bound views at the new cell width without binding them again.
+     */
+    public void setMinCellWidth(int minCellWidth) {
+        boolean needRequest = this.minCellWidth != minCellWidth;
+        this.minCellWidth = minCellWidth;
+        requestGeometryLayoutIfNeeded(needRequest);
+    }
+
+    public int getMinCellWidth() {
+        return this.minCellWidth;
+    }
+
     public void setColCount(int colCount) {
         boolean needRequest = this.colCount != colCount;
         this.colCount = colCount;
-        requestLayoutIfNeeded(needRequest);
+        requestGeometryLayoutIfNeeded(needRequest);
     }
 
     public int getColCount() {
         return this.colCount;
     }
 
+    /**
+     * Lets items span several columns, null to give every item one column. The spans are looked up
+     * when the board measures after a data set change or a geometry change, see {@link SpanSizeLookup}.
+     */
+    public void setSpanSizeLookup(SpanSizeLookup spanSizeLookup) {
+        boolean needRequest = this.spanSizeLookup != spanSizeLookup;
+        this.spanSizeLookup = spanSizeLookup;
+        requestGeometryLayoutIfNeeded(needRequest);
+    }
+
+    public SpanSizeLookup getSpanSizeLookup() {
+        return this.spanSizeLookup;
+    }
+
+    /**
+     * Places each item at the top of the shortest column instead of in rows, so items keep their
+     * own heights. Items spanning more than one column take the full width. A staggered board
+     * measures every item and ignores {@link #setUniformRowHeight} and {@link #setWindowed}.
+     */
+    public void setStaggered(boolean staggered) {
+        boolean needRequest = this.staggered != staggered;
+        this.staggered = staggered;
+        requestGeometryLayoutIfNeeded(needRequest);
+    }
+
+    public boolean isStaggered() {
+        return this.staggered;
+    }
+
     protected void requestLayoutIfNeeded(boolean updateFlag) {
         if (updateFlag) {
             isDataChanged = true;
@@ -355,11 +2018,208 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
         }
     }
 
+    /**
+     * Like {@link #requestLayoutIfNeeded}, for changes of the geometry only: the bound views are
+     * kept and measured again only if their cell size changed.
+     */
+    protected void requestGeometryLayoutIfNeeded(boolean updateFlag) {
+        if (updateFlag) {
+            isGeometryChanged = true;
+            requestLayout();
+        }
+    }
+
+    /**
+     * Computes the cell of an item from the cached row offsets and columns, without its view.
+     * Works for items whose views are not attached, e.g. outside the window, and as soon as the
+     * board is measured, before it is laid out. The cell spans all columns of the item and is as
+     * high as its row, or as the item in staggered mode.
+     *
+     * @param outRect gets the cell, relative to the board
+     * @return false if the item is not on the board as of the last measure pass.
+     */
+    public boolean getItemRect(int position, Rect outRect) {
+        if (adapter == null || scrapViews == null || !getCellBounds(position, cellBounds)) {
+            return false;
+        }
+
+        final int paddingLeft = getPaddingLeft();
+        final int paddingTop = getPaddingTop();
+        outRect.set(paddingLeft + cellBounds[0], paddingTop + cellBounds[1],
+                paddingLeft + cellBounds[2], paddingTop + cellBounds[3]);
+        return true;
+    }
+
+    /**
+     * Asks the parents to scroll the cell of the item on screen, e.g. a ScrollView around the
+     * board, see {@link #getItemRect}. The item does not need to be attached. With a layout pass
+     * pending the cell is brought on screen after it.
+     */
+    public void requestPositionVisible(int position) {
+        if (adapter == null || position < 0 || position >= adapter.getCount()) {
+            return;
+        }
+        if (isLayoutRequested() || !getItemRect(position, itemRect)) {
+            pendingVisiblePosition = position;
+            if (!isLayoutRequested()) {
+                // not measured yet and no pass on its way
+                requestLayout();
+            }
+            return;
+        }
+        pendingVisiblePosition = INVALID_POSITION;
+        requestRectangleOnScreen(itemRect);
+    }
+
+    /**
+     * Starts a batch of changes: setters and adapter notifications until the matching
+     * {@link #endUpdate()} only record what changed, and the board measures and lays out once for
+     * all of them. The combined change rebinds what the strongest of them needs, e.g. a column count
+     * change together with ranged notifications keeps the bound views and rebinds only the
+     * notified items. Batches nest.
+     */
+    public void beginUpdate() {
+        updateDepth++;
+    }
+
+    /**
+     * Ends a batch of {@link #beginUpdate()}, the outermost one requests the layout pass for the
+     * whole batch.
+     */
+    public void endUpdate() {
+        if (updateDepth == 0) {
+            throw new IllegalStateException("endUpdate without beginUpdate");
+        }
+        updateDepth--;
+        if (updateDepth == 0 && isLayoutRequestDeferred) {
+            isLayoutRequestDeferred = false;
+            requestLayout();
+        }
+    }
+
+    /**
+     * Runs the changes as one batch, see {@link #beginUpdate()}.
+     */
+    public void batchUpdate(Runnable updates) {
+        beginUpdate();
+        try {
+            updates.run();
+        } finally {
+            endUpdate();
+        }
+    }
+
+    @Override
+    public void requestLayout() {
+        if (updateDepth > 0) {
+            isLayoutRequestDeferred = true;
+            return;
+        }
+        if (isLaidOutInFrame && strictModeListener != null && layoutRequestTrace == null) {
+            // the layout loop is reported by the next pass, with the stack of the request as its cause
+            layoutRequestTrace = new Throwable("layout requested after the layout pass of the frame");
+        }
+        super.requestLayout();
+    }
+
+    /**
+     * Creates the cell views of the adapter on the given executor ahead of the first measure, so
+     * that the main thread only binds them. Call it after {@link #setAdapter} and before the board
+     * is laid out, it can be called before the board is attached. The adapter has to be a
+     * {@link ChessBoardAdapter} which implements {@link ChessBoardAdapter#onCreateView}.
+     *
+     * One view is created per item of each view type, at most {@code maxViews} in total. A windowed
+     * board only needs about a screen of views.
+     */
+    public void prefetchViews(Executor executor, int maxViews) {
+        if (!(adapter instanceof ChessBoardAdapter)) {
+            return;
+        }
+
+        final int[] viewCounts = new int[adapter.getViewTypeCount()];
+        final int count = Math.min(adapter.getCount(), maxViews);
+        for (int position = 0; position < count; position++) {
+            final int viewType = adapter.getItemViewType(position);
+            if (viewType >= 0 && viewType < viewCounts.length) {
+                viewCounts[viewType]++;
+            }
+        }
+
+        prefetcher.prefetch((ChessBoardAdapter) adapter, this, viewCounts, executor);
+    }
+
+    public void prefetchViews(Executor executor) {
+        prefetchViews(executor, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return how many times the adapter reused the convertView it was given.
+     */
+    public int getRecycleHitCount() {
+        return recycler.getHitCount();
+    }
+
+    /**
+     * @return how many times the adapter returned a new view, either because there was no
+     * convertView of the item view type or because the adapter did not reuse it.
+     */
+    public int getRecycleMissCount() {
+        return recycler.getMissCount();
+    }
+
+    public void resetRecycleCounters() {
+        recycler.resetCounters();
+    }
+
     @Override
     public View getSelectedView() {
         return (scrapViews != null && selectedPosition >= 0 && selectedPosition < scrapViews.size()) ? scrapViews.get(selectedPosition) : null;
     }
 
+    /**
+     * Resolves the cell of the view, or of its ancestor which is a child of the board, through the
+     * bound views. AdapterView counts the children from a first position which stays 0 here.
+     */
+    @Override
+    public int getPositionForView(View view) {
+        if (scrapViews == null || view == null) {
+            return INVALID_POSITION;
+        }
+        View child = view;
+        ViewParent parent = child.getParent();
+        while (parent != this) {
+            if (!(parent instanceof View)) {
+                return INVALID_POSITION;
+            }
+            child = (View) parent;
+            parent = child.getParent();
+        }
+
+        // the children are attached in position order
+        final int position = getFirstVisiblePosition() + indexOfChild(child);
+        if (getViewForPosition(position) == child) {
+            return position;
+        }
+        final int index = scrapViews.indexOf(child);
+        return index >= 0 ? index : INVALID_POSITION;
+    }
+
+    /**
+     * @return the position of the first attached cell, the first of the window in windowed mode.
+     */
+    @Override
+    public int getFirstVisiblePosition() {
+        if (scrapViews == null || getChildCount() == 0 || !isWindowing()) {
+            return 0;
+        }
+        return getAttachedStartPosition();
+    }
+
+    @Override
+    public int getLastVisiblePosition() {
+        return getFirstVisiblePosition() + getChildCount() - 1;
+    }
+
     @Override
     public void setSelection(int position) {
         selectedPosition = position;
@@ -399,6 +2259,11 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
         if (scrapViews != null) {
             scrapViews.clear();
         }
+        prefetcher.cancel();
+        recycler.clear();
+        // until the new adapter is laid out, prefetched views are kept
+        recycler.setMaxScrapViews(Integer.MAX_VALUE);
+        measureCache.clear();
 
         this.adapter = adapter;
 
@@ -411,6 +2276,8 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
 
             this.adapter.registerDataSetObserver(dataSetObserver);
 
+            recycler.setViewTypeCount(adapter.getViewTypeCount());
+
             isDataChanged = true;
 
             setSelection(0);
@@ -422,8 +2289,19 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        AccessibilityManagerCompat.removeAccessibilityStateChangeListener(accessibilityManager,
+                accessibilityStateChangeListener);
+        if (windowed) {
+            removeWindowListeners();
+        }
+        // views inflated for a detached board would only pile up in the recycler
+        prefetcher.cancel();
+        if (strictModeListener != null) {
+            getViewTreeObserver().removeOnPreDrawListener(strictModeFrameListener);
+            clearStrictModeFrame();
+        }
         if (scrapViews != null) {
-            scrapViews.clear();
+            recycleScrapViews();
             scrapViews = null;
         }
 
@@ -436,6 +2314,15 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
+        AccessibilityManagerCompat.addAccessibilityStateChangeListener(accessibilityManager,
+                accessibilityStateChangeListener);
+        accessibilityStateChangeListener.onAccessibilityStateChanged(accessibilityManager.isEnabled());
+        if (windowed) {
+            addWindowListeners();
+        }
+        if (strictModeListener != null) {
+            getViewTreeObserver().addOnPreDrawListener(strictModeFrameListener);
+        }
         if (adapter != null && dataSetObserver == null) {
             dataSetObserver = new AdapterDataSetObserver();
             adapter.registerDataSetObserver(dataSetObserver);
@@ -454,7 +2341,7 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
             case MotionEvent.ACTION_DOWN: {
 
                 selectedPosition = getPositionFromCoord((int) event.getX(), (int) event.getY());
-                selectedView = getChildAt(selectedPosition);
+                selectedView = getViewForPosition(selectedPosition);
                 if (selectedPosition != INVALID_POSITION) {
 
                     clearSelectionState();
@@ -463,9 +2350,6 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
 
                         touchMode = TOUCH_MODE_DOWN;
 
-                        if (pendingCheckForTap == null) {
-                            pendingCheckForTap = new CheckForTap();
-                        }
                         postDelayed(pendingCheckForTap, ViewConfiguration.getTapTimeout());
                     }
                 }
@@ -502,11 +2386,6 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
                                 selectedView.setPressed(false);
                             }
 
-                            if (performClick == null) {
-                                performClick = new PerformClick();
-                            }
-
-                            final PerformClick performClick = this.performClick;
                             performClick.rememberWindowAttachCount();
 
                             if (touchMode == TOUCH_MODE_DOWN || touchMode == TOUCH_MODE_TAP) {
@@ -517,21 +2396,7 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
 
                                 selectedView.setPressed(true);
 
-                                if (touchModeReset != null) {
-                                    removeCallbacks(touchModeReset);
-                                }
-
-                                touchModeReset = new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        touchModeReset = null;
-                                        touchMode = TOUCH_MODE_NONE;
-                                        selectedView.setPressed(false);
-                                        if (getWindowToken() != null) {
-                                            performClick.run();
-                                        }
-                                    }
-                                };
+                                removeCallbacks(touchModeReset);
                                 postDelayed(touchModeReset,
                                         ViewConfiguration.getPressedStateDuration());
                             } else {
@@ -547,7 +2412,7 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
             case MotionEvent.ACTION_CANCEL: {
                 if (touchMode != TOUCH_MODE_NONE) {
                     touchMode = TOUCH_MODE_NONE;
-                    final View child = this.getChildAt(selectedPosition);
+                    final View child = getViewForPosition(selectedPosition);
                     if (child != null) {
                         child.setPressed(false);
                     }
@@ -574,7 +2439,7 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
         public void run() {
             if (touchMode == TOUCH_MODE_DOWN) {
                 touchMode = TOUCH_MODE_TAP;
-                final View child = getChildAt(selectedPosition);
+                final View child = getViewForPosition(selectedPosition);
                 if (child != null && !child.hasFocusable()) {
                     child.setPressed(true);
                     refreshDrawableState();
@@ -582,9 +2447,6 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
                     final boolean longClickable = isLongClickable();
 
                     if (longClickable) {
-                        if (pendingCheckForLongPress == null) {
-                            pendingCheckForLongPress = new CheckForLongPress();
-                        }
                         pendingCheckForLongPress.rememberWindowAttachCount();
                         postDelayed(pendingCheckForLongPress, ViewConfiguration.getLongPressTimeout());
                     } else {
@@ -602,7 +2464,7 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
     final class CheckForLongPress extends WindowRunnable implements Runnable {
         @Override
         public void run() {
-            final View child = getChildAt(selectedPosition);
+            final View child = getViewForPosition(selectedPosition);
             if (child != null) {
                 final long longPressId = adapter.getItemId(selectedPosition);
                 boolean handled = false;
@@ -619,12 +2481,36 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
         }
     }
 
+    final class TouchModeReset implements Runnable {
+        @Override
+        public void run() {
+            touchMode = TOUCH_MODE_NONE;
+            if (selectedView != null) {
+                selectedView.setPressed(false);
+            }
+            if (getWindowToken() != null) {
+                performClick.run();
+            }
+        }
+    }
+
+    final class ShowPendingPosition implements Runnable {
+        @Override
+        public void run() {
+            final int position = pendingVisiblePosition;
+            pendingVisiblePosition = INVALID_POSITION;
+            if (position != INVALID_POSITION && getItemRect(position, itemRect)) {
+                requestRectangleOnScreen(itemRect);
+            }
+        }
+    }
+
     final class PerformClick extends WindowRunnable implements Runnable {
 
         @Override
         public void run() {
             if (adapter != null && selectedPosition != INVALID_POSITION && sameWindow()) {
-                final View view = getChildAt(selectedPosition);
+                final View view = getViewForPosition(selectedPosition);
                 if (view != null) {
                     performItemClick(view, selectedPosition, adapter.getItemId(selectedPosition));
                 }
@@ -648,20 +2534,35 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
         return handled;
     }
 
+    /**
+     * Finds the cell under the given point from the cached geometry, see
+     * {@link BoardGeometry#findPosition} and {@link StaggeredGeometry#findPosition}.
+     * Points in the spacing between cells, past the last item of a row or on a cell which is not
+     * visible hit nothing.
+     */
     private int getPositionFromCoord(int x, int y) {
-        Rect viewFrame = new Rect();
-
-        final int count = getChildCount();
-        for (int i = count - 1; i >= 0; i--) {
-            final View child = getChildAt(i);
-            if (child.getVisibility() == View.VISIBLE) {
-                child.getHitRect(viewFrame);
-                if (viewFrame.contains(x, y)) {
-                    return i;
-                }
-            }
+        if (scrapViews == null || columns.getColCount() == 0) {
+            return INVALID_POSITION;
+        }
+
+        // distance into the cell columns from the start edge
+        final int paddingLeft = getPaddingLeft();
+        final int offsetX = BoardColumns.toStartOffset(x - paddingLeft, layoutRtl,
+                totalWidth - paddingLeft - getPaddingRight());
+        final int offsetY = y - getPaddingTop();
+
+        final int position = staggered
+                ? staggeredGeometry.findPosition(offsetX, offsetY, columns)
+                : geometry.findPosition(offsetX, offsetY, columns);
+        if (position < 0 || position >= scrapViews.size()) {
+            return INVALID_POSITION;
+        }
+
+        final View child = scrapViews.get(position);
+        if (child == null || child.getVisibility() != View.VISIBLE) {
+            return INVALID_POSITION;
         }
-        return INVALID_POSITION;
+        return position;
     }
 
     @Override
@@ -673,7 +2574,7 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
             if (isClickable() &&
                     selectedPosition >= 0 && adapter != null && selectedPosition < adapter.getCount()) {
 
-                final View view = getChildAt(selectedPosition);
+                final View view = getViewForPosition(selectedPosition);
                 if (view != null) {
                     performItemClick(view, selectedPosition, adapter.getItemId(selectedPosition));
                     view.setPressed(false);
@@ -739,7 +2640,7 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
 
         if (isFocused()) {
 
-            final View v = getChildAt(selectedPosition);
+            final View v = getViewForPosition(selectedPosition);
 
             if (v != null) {
                 if (v.hasFocusable()) return false;
@@ -749,9 +2650,6 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
             final boolean longClickable = isLongClickable();
 
             if (longClickable) {
-                if (pendingCheckForLongPress == null) {
-                    pendingCheckForLongPress = new CheckForLongPress();
-                }
                 pendingCheckForLongPress.rememberWindowAttachCount();
                 postDelayed(pendingCheckForLongPress, ViewConfiguration.getLongPressTimeout());
             }
@@ -763,7 +2661,10 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
     }
 
     private boolean updateSelection(FocusDirection direction) {
-        getChildAt(selectedPosition).setSelected(false);
+        View view = getViewForPosition(selectedPosition);
+        if (view != null) {
+            view.setSelected(false);
+        }
 
         if (direction == FocusDirection.FOCUS_UP) {
             if (selectedPosition == 0) {
@@ -771,13 +2672,16 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
             }
             selectedPosition--;
         } else {
-            if (selectedPosition == getChildCount() - 1) {
+            if (selectedPosition == scrapViews.size() - 1) {
                 return false;
             }
             selectedPosition++;
         }
 
-        getChildAt(selectedPosition).setSelected(true);
+        view = getViewForPosition(selectedPosition);
+        if (view != null) {
+            view.setSelected(true);
+        }
         return true;
     }
 
@@ -790,8 +2694,10 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
         }
 
         if (gainFocus && !isInTouchMode()) {
-            View selectedView = getChildAt(selectedPosition);
-            selectedView.setSelected(true);
+            View selectedView = getViewForPosition(selectedPosition);
+            if (selectedView != null) {
+                selectedView.setSelected(true);
+            }
         } else {
             clearSelectionState();
         }
@@ -803,29 +2709,127 @@ public class ChessBoardLayout extends AdapterView<BaseAdapter> {
         }
     }
 
-    class AdapterDataSetObserver extends DataSetObserver {
+    class AdapterDataSetObserver extends ChessBoardDataSetObserver {
 
         @Override
         public void onChanged() {
+            if (strictModeListener != null) {
+                if (isDataSetChangedInFrame) {
+                    reportViolation(StrictModeViolation.TYPE_REPEATED_DATA_SET_CHANGE, -1,
+                            "notifyDataSetChanged called again in the same frame");
+                }
+                isDataSetChangedInFrame = isDrawingFrames();
+            }
             isDataChanged = true;
+            isChangeAnimationPending = true;
             requestLayout();
         }
 
         @Override
-        public void onInvalidated() {
-            isDataChanged = true;
-            selectedPosition = INVALID_POSITION;
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            if (!canApplyRangedChange(positionStart, itemCount)) {
+                if (payload == null && adapter != null && adapter.hasStableIds()) {
+                    final int end = Math.min(positionStart + itemCount, adapter.getCount());
+                    for (int position = Math.max(0, positionStart); position < end; position++) {
+                        measureCache.invalidate(adapter.getItemId(position));
+                    }
+                }
+                onChanged();
+                return;
+            }
+
+            boolean needLayout = false;
+            for (int position = positionStart; position < positionStart + itemCount; position++) {
+                final View child = scrapViews.get(position);
+                if (child == null) {
+                    continue;
+                }
+                if (payload != null && adapter instanceof ChessBoardAdapter && !CellInfo.of(child).dirty) {
+                    ((ChessBoardAdapter) adapter).rebindView(position, child, ChessBoardLayout.this, payload);
+                } else {
+                    CellInfo.of(child).dirty = true;
+                    markPositionDirty(position);
+                    needLayout = true;
+                }
+            }
+
+            if (needLayout) {
+                isChangeAnimationPending = true;
+                requestLayout();
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            if (!canApplyRangedChange(positionStart, 0) || itemCount <= 0) {
+                onChanged();
+                return;
+            }
+
+            scrapViews.addAll(positionStart, Collections.<View>nCopies(itemCount, null));
+
+            if (firstDirtyPosition >= positionStart && firstDirtyPosition != Integer.MAX_VALUE) {
+                firstDirtyPosition += itemCount;
+            }
+            if (lastDirtyPosition >= positionStart) {
+                lastDirtyPosition += itemCount;
+            }
+            markPositionDirty(positionStart);
+            markPositionDirty(positionStart + itemCount - 1);
+            firstShiftedPosition = Math.min(firstShiftedPosition, positionStart);
+
+            if (selectedPosition >= positionStart) {
+                selectedPosition += itemCount;
+            }
+            isChangeAnimationPending = true;
+
             requestLayout();
         }
-    }
 
-    @Override
-    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-        super.onSizeChanged(w, h, oldw, oldh);
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            if (!canApplyRangedChange(positionStart, itemCount) || itemCount <= 0) {
+                onChanged();
+                return;
+            }
 
-        if (getChildCount() > 0) {
-            scrapViews.clear();
+            final List<View> removed = scrapViews.subList(positionStart, positionStart + itemCount);
+            for (View child : removed) {
+                if (child != null) {
+                    CellInfo.of(child).dirty = false;
+                    recycler.addScrapView(child);
+                }
+            }
+            removed.clear();
+
+            if (firstDirtyPosition != Integer.MAX_VALUE && firstDirtyPosition >= positionStart) {
+                firstDirtyPosition = Math.max(positionStart, firstDirtyPosition - itemCount);
+            }
+            if (lastDirtyPosition >= positionStart) {
+                lastDirtyPosition = Math.max(positionStart - 1, lastDirtyPosition - itemCount);
+            }
+            if (lastDirtyPosition < firstDirtyPosition) {
+                firstDirtyPosition = Integer.MAX_VALUE;
+                lastDirtyPosition = -1;
+            }
+            firstShiftedPosition = Math.min(firstShiftedPosition, positionStart);
+
+            if (selectedPosition >= positionStart + itemCount) {
+                selectedPosition -= itemCount;
+            } else if (selectedPosition >= positionStart) {
+                selectedPosition = INVALID_POSITION;
+            }
+            isChangeAnimationPending = true;
+
+            requestLayout();
+        }
+
+        @Override
+        public void onInvalidated() {
+            measureCache.clear();
             isDataChanged = true;
+            selectedPosition = INVALID_POSITION;
+            requestLayout();
         }
     }
 
@@ -0,0 +1,121 @@
+package com.jungkai.chessboardlayout;
+
+/**
+ * What one measure or layout pass of a {@link ChessBoardLayout} did, reported to a
+ * {@link LayoutStatsListener}. The board only collects stats while a listener is set.
+ */
+public final class LayoutStats {
+
+    public static final int PASS_MEASURE = 0;
+
+    public static final int PASS_LAYOUT = 1;
+
+    int pass;
+
+    long durationNanos;
+
+    int getViewCount;
+
+    int inflatedViewCount;
+
+    int reusedViewCount;
+
+    int measuredChildCount;
+
+    int changedRowCount;
+
+    boolean fullRebuild;
+
+    private long startNanos;
+
+    private int startHitCount;
+
+    private int startMissCount;
+
+    LayoutStats() {
+    }
+
+    void begin(int pass, boolean fullRebuild, RecycleBin recycler) {
+        this.pass = pass;
+        this.fullRebuild = fullRebuild;
+        measuredChildCount = 0;
+        changedRowCount = 0;
+        startHitCount = recycler.getHitCount();
+        startMissCount = recycler.getMissCount();
+        startNanos = System.nanoTime();
+    }
+
+    void end(RecycleBin recycler) {
+        durationNanos = System.nanoTime() - startNanos;
+        reusedViewCount = recycler.getHitCount() - startHitCount;
+        inflatedViewCount = recycler.getMissCount() - startMissCount;
+        getViewCount = reusedViewCount + inflatedViewCount;
+    }
+
+    /**
+     * @return {@link #PASS_MEASURE} or {@link #PASS_LAYOUT}.
+     */
+    public int getPass() {
+        return pass;
+    }
+
+    /**
+     * @return wall time of the pass.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return how many times the pass called the getView of the adapter.
+     */
+    public int getGetViewCount() {
+        return getViewCount;
+    }
+
+    /**
+     * @return getView calls which returned a new view.
+     */
+    public int getInflatedViewCount() {
+        return inflatedViewCount;
+    }
+
+    /**
+     * @return getView calls which returned the convertView they were given.
+     */
+    public int getReusedViewCount() {
+        return reusedViewCount;
+    }
+
+    public int getMeasuredChildCount() {
+        return measuredChildCount;
+    }
+
+    /**
+     * @return rows measured again whose height changed, also the rows a geometry change moved,
+     * every row on a full rebuild. A staggered board has no rows.
+     */
+    public int getChangedRowCount() {
+        return changedRowCount;
+    }
+
+    /**
+     * @return true if the pass bound every item again after a data set change, or a setter which
+     * needs one.
+     */
+    public boolean isFullRebuild() {
+        return fullRebuild;
+    }
+
+    @Override
+    public String toString() {
+        return (pass == PASS_MEASURE ? "measure" : "layout")
+                + " " + (durationNanos / 1000) + "us"
+                + " getView=" + getViewCount
+                + " inflated=" + inflatedViewCount
+                + " reused=" + reusedViewCount
+                + " measured=" + measuredChildCount
+                + " changedRows=" + changedRowCount
+                + (fullRebuild ? " full" : "");
+    }
+}
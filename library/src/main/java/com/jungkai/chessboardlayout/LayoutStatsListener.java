@@ -0,0 +1,14 @@
+package com.jungkai.chessboardlayout;
+
+/**
+ * Receives the cost of every measure and layout pass of a {@link ChessBoardLayout}, see
+ * {@link ChessBoardLayout#setLayoutStatsListener}.
+ */
+public interface LayoutStatsListener {
+
+    /**
+     * Called on the main thread at the end of each pass. The stats object is reused by the next
+     * pass, copy what has to be kept.
+     */
+    void onLayoutStats(ChessBoardLayout layout, LayoutStats stats);
+}
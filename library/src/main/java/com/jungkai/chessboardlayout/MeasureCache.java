@@ -0,0 +1,193 @@
+package com.jungkai.chessboardlayout;
+
+/**
+ * Measured cell heights of a {@link ChessBoardLayout}, keyed by stable item id and cell width spec.
+ *
+ * Heights of the last {@link #MAX_WIDTHS} cell widths are kept, so going back to a width the board
+ * already had (e.g. rotating back) finds them again. Keys and heights are stored in primitive open
+ * addressing tables.
+ */
+class MeasureCache {
+
+    static final int MAX_WIDTHS = 4;
+
+    static final int NO_HEIGHT = -1;
+
+    private final Table[] tables = new Table[MAX_WIDTHS];
+
+    private final int[] widthSpecs = new int[MAX_WIDTHS];
+
+    private final long[] lastUse = new long[MAX_WIDTHS];
+
+    private long useCount;
+
+    /**
+     * @return the cached height, or {@link #NO_HEIGHT}.
+     */
+    int get(long itemId, int widthSpec) {
+        final Table table = findTable(widthSpec);
+        return table == null ? NO_HEIGHT : table.get(itemId);
+    }
+
+    void put(long itemId, int widthSpec, int height) {
+        if (height < 0) {
+            return;
+        }
+        Table table = findTable(widthSpec);
+        if (table == null) {
+            table = newTable(widthSpec);
+        }
+        table.put(itemId, height);
+    }
+
+    /**
+     * Forgets the heights of one item for every width.
+     */
+    void invalidate(long itemId) {
+        for (Table table : tables) {
+            if (table != null) {
+                table.remove(itemId);
+            }
+        }
+    }
+
+    void clear() {
+        for (Table table : tables) {
+            if (table != null) {
+                table.clear();
+            }
+        }
+    }
+
+    private Table findTable(int widthSpec) {
+        for (int i = 0; i < MAX_WIDTHS; i++) {
+            if (tables[i] != null && widthSpecs[i] == widthSpec) {
+                lastUse[i] = ++useCount;
+                return tables[i];
+            }
+        }
+        return null;
+    }
+
+    private Table newTable(int widthSpec) {
+        int slot = 0;
+        for (int i = 0; i < MAX_WIDTHS; i++) {
+            if (tables[i] == null) {
+                slot = i;
+                break;
+            }
+            if (lastUse[i] < lastUse[slot]) {
+                slot = i;
+            }
+        }
+
+        if (tables[slot] == null) {
+            tables[slot] = new Table();
+        } else {
+            tables[slot].clear();
+        }
+        widthSpecs[slot] = widthSpec;
+        lastUse[slot] = ++useCount;
+        return tables[slot];
+    }
+
+    /**
+     * long to int hash table with linear probing. Empty slots hold {@link #NO_HEIGHT}.
+     */
+    static final class Table {
+
+        private long[] keys = new long[16];
+
+        private int[] values = newValues(16);
+
+        private int size;
+
+        private static int[] newValues(int capacity) {
+            int[] values = new int[capacity];
+            for (int i = 0; i < capacity; i++) {
+                values[i] = NO_HEIGHT;
+            }
+            return values;
+        }
+
+        private static int hash(long key) {
+            final long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        int get(long key) {
+            final int mask = keys.length - 1;
+            for (int i = hash(key) & mask; values[i] != NO_HEIGHT; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return NO_HEIGHT;
+        }
+
+        void put(long key, int value) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                grow();
+            }
+            final int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            for (; values[i] != NO_HEIGHT; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        void remove(long key) {
+            final int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (values[i] != NO_HEIGHT && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == NO_HEIGHT) {
+                return;
+            }
+            values[i] = NO_HEIGHT;
+            size--;
+
+            // shift back the entries of the same probe run, so that lookups don't stop at the hole
+            for (int j = (i + 1) & mask; values[j] != NO_HEIGHT; j = (j + 1) & mask) {
+                final int home = hash(keys[j]) & mask;
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    values[j] = NO_HEIGHT;
+                    i = j;
+                }
+            }
+        }
+
+        void clear() {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = NO_HEIGHT;
+            }
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void grow() {
+            final long[] oldKeys = keys;
+            final int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = newValues(oldKeys.length * 2);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != NO_HEIGHT) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+}
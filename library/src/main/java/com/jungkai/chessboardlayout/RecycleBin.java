@@ -0,0 +1,197 @@
+package com.jungkai.chessboardlayout;
+
+import android.support.v4.util.LongSparseArray;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the views of a {@link ChessBoardLayout} while its data is rebound, so that they can be
+ * handed back to the adapter as convertView instead of inflating new ones.
+ *
+ * Active views are the views that were bound before the data changed, indexed by their old
+ * position, or by item id when the adapter has stable ids. A position whose view type did not
+ * change gets its own view (or the view of its item) back; everything else goes through per view
+ * type scrap heaps.
+ */
+class RecycleBin {
+
+    private View[] activeViews = new View[0];
+
+    private int activeCount;
+
+    private final LongSparseArray<View> activeViewsById = new LongSparseArray<View>();
+
+    @SuppressWarnings("unchecked")
+    private ArrayList<View>[] scrapHeaps = new ArrayList[0];
+
+    /**
+     * Views kept per scrap heap, the ones beyond are dropped.
+     */
+    private int maxScrapViews = Integer.MAX_VALUE;
+
+    private int hitCount;
+
+    private int missCount;
+
+    void setViewTypeCount(int viewTypeCount) {
+        if (viewTypeCount < 1) {
+            throw new IllegalArgumentException("Can't have a viewTypeCount < 1");
+        }
+
+        @SuppressWarnings("unchecked")
+        ArrayList<View>[] heaps = new ArrayList[viewTypeCount];
+        for (int i = 0; i < viewTypeCount; i++) {
+            heaps[i] = new ArrayList<View>();
+        }
+        scrapHeaps = heaps;
+    }
+
+    /**
+     * Takes over the given bound views, indexed by their item id if {@code byId} is set or by
+     * their position otherwise.
+     */
+    void fillActiveViews(List<View> views, boolean byId) {
+        scrapActiveViews();
+
+        final int count = views.size();
+        if (byId) {
+            for (int i = 0; i < count; i++) {
+                final View view = views.get(i);
+                if (view == null) {
+                    continue;
+                }
+                final long itemId = CellInfo.of(view).itemId;
+                final View duplicate = activeViewsById.get(itemId);
+                if (duplicate != null) {
+                    addScrapView(duplicate);
+                }
+                activeViewsById.put(itemId, view);
+            }
+            return;
+        }
+
+        if (activeViews.length < count) {
+            activeViews = new View[count];
+        }
+        for (int i = 0; i < count; i++) {
+            activeViews[i] = views.get(i);
+        }
+        activeCount = count;
+    }
+
+    /**
+     * @return a view to pass to the adapter as convertView for the given item, or null.
+     */
+    View getConvertView(int position, int viewType, long itemId) {
+        if (activeViewsById.size() > 0) {
+            final View active = activeViewsById.get(itemId);
+            if (active != null) {
+                activeViewsById.remove(itemId);
+                if (CellInfo.of(active).viewType == viewType) {
+                    return active;
+                }
+                addScrapView(active);
+            }
+        } else if (position < activeCount) {
+            final View active = activeViews[position];
+            if (active != null) {
+                activeViews[position] = null;
+                if (CellInfo.of(active).viewType == viewType) {
+                    return active;
+                }
+                addScrapView(active);
+            }
+        }
+        return getScrapView(viewType);
+    }
+
+    /**
+     * Records the result of an adapter bind. A convertView the adapter did not reuse is kept.
+     */
+    void onViewBound(View child, View convertView, int viewType) {
+        if (convertView != null && child == convertView) {
+            hitCount++;
+        } else {
+            missCount++;
+            if (convertView != null) {
+                addScrapView(convertView);
+            }
+        }
+        CellInfo.of(child).viewType = viewType;
+    }
+
+    /**
+     * Moves the active views no position asked for into the scrap heaps.
+     */
+    void scrapActiveViews() {
+        for (int i = 0; i < activeCount; i++) {
+            if (activeViews[i] != null) {
+                addScrapView(activeViews[i]);
+                activeViews[i] = null;
+            }
+        }
+        activeCount = 0;
+
+        final int count = activeViewsById.size();
+        for (int i = 0; i < count; i++) {
+            addScrapView(activeViewsById.valueAt(i));
+        }
+        activeViewsById.clear();
+    }
+
+    void addScrapView(View scrap) {
+        final int viewType = CellInfo.of(scrap).viewType;
+        if (viewType >= 0 && viewType < scrapHeaps.length && scrapHeaps[viewType].size() < maxScrapViews) {
+            scrapHeaps[viewType].add(scrap);
+        }
+    }
+
+    /**
+     * Limits every scrap heap to {@code maxScrapViews} views, e.g. the number of views that fit on
+     * screen, and drops the views above the limit.
+     */
+    void setMaxScrapViews(int maxScrapViews) {
+        this.maxScrapViews = maxScrapViews;
+        for (ArrayList<View> heap : scrapHeaps) {
+            for (int i = heap.size() - 1; i >= maxScrapViews; i--) {
+                heap.remove(i);
+            }
+        }
+    }
+
+    private View getScrapView(int viewType) {
+        if (viewType < 0 || viewType >= scrapHeaps.length) {
+            return null;
+        }
+        final ArrayList<View> heap = scrapHeaps[viewType];
+        final int size = heap.size();
+        return size > 0 ? heap.remove(size - 1) : null;
+    }
+
+    void clear() {
+        for (int i = 0; i < activeCount; i++) {
+            activeViews[i] = null;
+        }
+        activeCount = 0;
+        activeViewsById.clear();
+
+        for (ArrayList<View> heap : scrapHeaps) {
+            heap.clear();
+        }
+    }
+
+    int getHitCount() {
+        return hitCount;
+    }
+
+    int getMissCount() {
+        return missCount;
+    }
+
+    void resetCounters() {
+        hitCount = 0;
+        missCount = 0;
+    }
+}
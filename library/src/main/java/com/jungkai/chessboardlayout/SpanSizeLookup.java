@@ -0,0 +1,18 @@
+package com.jungkai.chessboardlayout;
+
+/**
+ * Tells a {@link ChessBoardLayout} how many columns each item takes, e.g. a full width section
+ * header or a promo two cells wide. An item which does not fit into what is left of a row starts
+ * the next row.
+ *
+ * The board looks the spans up once per measure and caches the row and column of every item, so
+ * a span may only change together with an adapter notification for the item.
+ */
+public abstract class SpanSizeLookup {
+
+    /**
+     * @return the number of columns the item at the given position spans, values outside of
+     * 1..colCount are clamped.
+     */
+    public abstract int getSpanSize(int position);
+}
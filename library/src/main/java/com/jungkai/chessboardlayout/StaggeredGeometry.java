@@ -0,0 +1,273 @@
+package com.jungkai.chessboardlayout;
+
+/**
+ * Cell geometry of a {@link ChessBoardLayout} in staggered mode.
+ *
+ * Items are placed in position order, each one at the top of the column which is the shortest so
+ * far. The columns are kept in a min-heap of their heights, so placing n items is O(n log colCount).
+ * Items spanning more than one column take the full width below the longest column.
+ *
+ * Column, top and bottom of every item are kept in flat tables, and every column keeps the items
+ * it holds in position order, which are also ordered by top, so a point is hit tested by a binary
+ * search within its column. Offsets are relative to the top padding of the board.
+ */
+class StaggeredGeometry {
+
+    private int colCount = 1;
+
+    private int itemCount;
+
+    private int[] itemColumns = new int[0];
+
+    private boolean[] itemFullSpans = new boolean[0];
+
+    private int[] itemTops = new int[0];
+
+    private int[] itemBottoms = new int[0];
+
+    /**
+     * Positions in each column, full span items are in every column.
+     */
+    private int[][] columnItems = new int[0][];
+
+    private int[] columnItemCounts = new int[0];
+
+    /**
+     * Top of the next item in each column.
+     */
+    private int[] columnHeights = new int[0];
+
+    /**
+     * Columns as a min-heap by {@link #columnHeights}, ties go to the lower column.
+     */
+    private int[] heap = new int[0];
+
+    private int totalHeight;
+
+    /**
+     * Resets the tables for {@code itemCount} items in {@code colCount} columns and looks up which
+     * items span the full width. Items have to be placed again afterwards.
+     */
+    void setup(int itemCount, int colCount, SpanSizeLookup spanSizeLookup) {
+        this.colCount = colCount;
+        this.itemCount = itemCount;
+
+        if (itemColumns.length < itemCount) {
+            itemColumns = new int[itemCount];
+            itemFullSpans = new boolean[itemCount];
+            itemTops = new int[itemCount];
+            itemBottoms = new int[itemCount];
+        }
+        for (int position = 0; position < itemCount; position++) {
+            itemFullSpans[position] = colCount > 1 && spanSizeLookup != null
+                    && spanSizeLookup.getSpanSize(position) > 1;
+        }
+
+        if (columnHeights.length != colCount) {
+            columnItems = new int[colCount][];
+            columnItemCounts = new int[colCount];
+            columnHeights = new int[colCount];
+            heap = new int[colCount];
+        }
+        final int itemsPerColumn = itemCount / colCount + 1;
+        for (int column = 0; column < colCount; column++) {
+            if (columnItems[column] == null || columnItems[column].length < itemsPerColumn) {
+                columnItems[column] = new int[itemsPerColumn];
+            }
+        }
+        reset();
+    }
+
+    /**
+     * Forgets where the items were placed, the spans of {@link #setup} are kept.
+     */
+    void reset() {
+        for (int column = 0; column < colCount; column++) {
+            columnItemCounts[column] = 0;
+            columnHeights[column] = 0;
+            heap[column] = column;
+        }
+        totalHeight = 0;
+    }
+
+    /**
+     * Places the item at the top of the shortest column. Items have to be placed in position order.
+     *
+     * @param rowSpacing space between the item and the next item of the same column
+     */
+    void place(int position, int height, int rowSpacing) {
+        final int top;
+        if (itemFullSpans[position]) {
+            int maxHeight = 0;
+            for (int column = 0; column < colCount; column++) {
+                maxHeight = Math.max(maxHeight, columnHeights[column]);
+            }
+            top = maxHeight;
+            for (int column = 0; column < colCount; column++) {
+                columnHeights[column] = top + height + rowSpacing;
+                heap[column] = column;
+                addToColumn(column, position);
+            }
+            itemColumns[position] = 0;
+        } else {
+            final int column = heap[0];
+            top = columnHeights[column];
+            columnHeights[column] = top + height + rowSpacing;
+            siftDown(0);
+            addToColumn(column, position);
+            itemColumns[position] = column;
+        }
+
+        itemTops[position] = top;
+        itemBottoms[position] = top + height;
+        totalHeight = Math.max(totalHeight, top + height);
+    }
+
+    private void addToColumn(int column, int position) {
+        int[] items = columnItems[column];
+        final int count = columnItemCounts[column];
+        if (count == items.length) {
+            int[] grown = new int[count * 2 + 1];
+            System.arraycopy(items, 0, grown, 0, count);
+            columnItems[column] = items = grown;
+        }
+        items[count] = position;
+        columnItemCounts[column] = count + 1;
+    }
+
+    private boolean isShorter(int column, int other) {
+        return columnHeights[column] < columnHeights[other]
+                || (columnHeights[column] == columnHeights[other] && column < other);
+    }
+
+    private void siftDown(int index) {
+        final int column = heap[index];
+        final int half = colCount >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            final int right = child + 1;
+            if (right < colCount && isShorter(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!isShorter(heap[child], column)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = column;
+    }
+
+    int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * @return the first column of the item.
+     */
+    int getColumn(int position) {
+        return itemColumns[position];
+    }
+
+    int getSpan(int position) {
+        return itemFullSpans[position] ? colCount : 1;
+    }
+
+    int getTop(int position) {
+        return itemTops[position];
+    }
+
+    int getBottom(int position) {
+        return itemBottoms[position];
+    }
+
+    int getColumnItemCount(int column) {
+        return columnItemCounts[column];
+    }
+
+    /**
+     * @return the position of the index-th item of the column, from the top.
+     */
+    int getColumnItem(int column, int index) {
+        return columnItems[column][index];
+    }
+
+    /**
+     * Computes the cell of an item: the columns it spans, see {@link BoardColumns#getCellEdges},
+     * and its own height.
+     *
+     * @param outBounds gets left, top, right and bottom, relative to the content of the board
+     * @return false if the item or its column is not on the board.
+     */
+    boolean getCellBounds(int position, BoardColumns columns, boolean rtl, int contentWidth, int[] outBounds) {
+        if (position < 0 || position >= itemCount) {
+            return false;
+        }
+        final int column = itemColumns[position];
+        if (column >= columns.getColCount()) {
+            return false;
+        }
+        columns.getCellEdges(column, getSpan(position), rtl, contentWidth, outBounds);
+        outBounds[1] = itemTops[position];
+        outBounds[3] = itemBottoms[position];
+        return true;
+    }
+
+    /**
+     * Finds the item under a point, the column by {@link BoardColumns#getColumnAt} and the item by
+     * {@link #getPositionAt}.
+     *
+     * @param offsetX distance from the start edge of the first column
+     * @param offsetY distance from the top of the board, without padding
+     * @return the position, -1 for points in the spacing between cells or below the items.
+     */
+    int findPosition(int offsetX, int offsetY, BoardColumns columns) {
+        if (offsetX < 0 || offsetY < 0) {
+            return -1;
+        }
+        final int column = columns.getColumnAt(offsetX);
+        if (column < 0) {
+            return -1;
+        }
+        final int position = getPositionAt(column, offsetY);
+        if (position < 0) {
+            return -1;
+        }
+
+        // the spacing inside a full span item belongs to the item
+        final int firstColumn = itemColumns[position];
+        return offsetX < columns.getOffset(firstColumn) + columns.getSpanWidth(firstColumn, getSpan(position))
+                ? position : -1;
+    }
+
+    /**
+     * @return the item of the column covering {@code offset}, -1 if it falls between items.
+     */
+    int getPositionAt(int column, int offset) {
+        if (column >= colCount) {
+            return -1;
+        }
+        final int[] items = columnItems[column];
+        int low = 0;
+        int high = columnItemCounts[column] - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int position = items[mid];
+            if (offset < itemTops[position]) {
+                high = mid - 1;
+            } else if (offset >= itemBottoms[position]) {
+                low = mid + 1;
+            } else {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return height of the longest column, without padding.
+     */
+    int getTotalHeight() {
+        return totalHeight;
+    }
+}
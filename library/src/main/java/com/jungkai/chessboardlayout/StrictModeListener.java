@@ -0,0 +1,13 @@
+package com.jungkai.chessboardlayout;
+
+/**
+ * Receives the violations a {@link ChessBoardLayout} finds in strict mode, see
+ * {@link ChessBoardLayout#setStrictModeListener}.
+ */
+public interface StrictModeListener {
+
+    /**
+     * Called on the main thread, in the middle of the call which caused the violation.
+     */
+    void onViolation(ChessBoardLayout layout, StrictModeViolation violation);
+}
@@ -0,0 +1,56 @@
+package com.jungkai.chessboardlayout;
+
+/**
+ * A costly use of a {@link ChessBoardLayout} found in strict mode, see
+ * {@link ChessBoardLayout#setStrictModeListener}. The stack trace is the one of the call which
+ * caused it, a listener can throw the violation to fail fast. A layout loop is found by the second
+ * layout pass, its cause has the stack trace of the requestLayout call which asked for that pass.
+ */
+public class StrictModeViolation extends RuntimeException {
+
+    /**
+     * The adapter returned a new view from getView although it was given a convertView of the
+     * item view type, so the cell was inflated instead of rebound.
+     */
+    public static final int TYPE_CONVERT_VIEW_IGNORED = 0;
+
+    /**
+     * The board was laid out again in the frame it was already laid out in, because a child or
+     * a listener requested a layout during the layout pass.
+     */
+    public static final int TYPE_LAYOUT_LOOP = 1;
+
+    /**
+     * notifyDataSetChanged was called again in the frame of an earlier call, every call after the
+     * first one only adds work.
+     */
+    public static final int TYPE_REPEATED_DATA_SET_CHANGE = 2;
+
+    private final int type;
+
+    private final int position;
+
+    StrictModeViolation(int type, int position, String message) {
+        this(type, position, message, null);
+    }
+
+    StrictModeViolation(int type, int position, String message, Throwable cause) {
+        super(message, cause);
+        this.type = type;
+        this.position = position;
+    }
+
+    /**
+     * @return one of the TYPE constants.
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * @return the item the violation is about, -1 if it is about the whole board.
+     */
+    public int getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,68 @@
+package com.jungkai.chessboardlayout;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Creates cell views of a {@link ChessBoardAdapter} on a background executor and hands them to the
+ * {@link RecycleBin} on the main thread, so that the first measure of a board only binds views.
+ * Views which arrive after the board bound their items are surplus, the recycler keeps at most a
+ * screen of them per view type once the board is laid out.
+ */
+class ViewPrefetcher {
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final RecycleBin recycler;
+
+    /**
+     * Views of an older prefetch are dropped when they arrive.
+     */
+    private volatile int generation;
+
+    ViewPrefetcher(RecycleBin recycler) {
+        this.recycler = recycler;
+    }
+
+    /**
+     * Creates {@code viewCounts[viewType]} views for each view type.
+     */
+    void prefetch(final ChessBoardAdapter adapter, final ViewGroup parent, int[] viewCounts, Executor executor) {
+        final int prefetchGeneration = generation;
+
+        for (int viewType = 0; viewType < viewCounts.length; viewType++) {
+            final int type = viewType;
+            for (int i = 0; i < viewCounts[viewType]; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (prefetchGeneration != generation) {
+                            return;
+                        }
+                        final View view = adapter.onCreateView(parent, type);
+                        if (view == null) {
+                            return;
+                        }
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (prefetchGeneration == generation) {
+                                    CellInfo.of(view).viewType = type;
+                                    recycler.addScrapView(view);
+                                }
+                            }
+                        });
+                    }
+                });
+            }
+        }
+    }
+
+    void cancel() {
+        generation++;
+    }
+}
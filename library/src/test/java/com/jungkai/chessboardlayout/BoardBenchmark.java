@@ -0,0 +1,292 @@
+package com.jungkai.chessboardlayout;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+/**
+ * Throughput and allocation rates of the Android free layout code of {@link ChessBoardLayout}, on
+ * the JVM. Each row is named after the code it times:
+ *
+ * - findPosition: the hit test getPositionFromCoord delegates to
+ * - measureRows: the row loop of measureAllRows and remeasureRows, with synthetic cell heights
+ *   instead of bound and measured views
+ * - measureRows cached: the same loop served from the {@link MeasureCache}, as a windowed board
+ *   with stable ids rebuilds. The rebind of every other board calls getView and is not covered.
+ * - measureRows+bounds: measureRows, the column split of measureBoard and the cell bounds
+ *   layoutChild places every view in, left to right and right to left on alternate passes. The
+ *   views are not laid out.
+ * - colCount toggle: measureRows+bounds with the column count of geometry.setup and the split
+ *   changing every pass, as a minCellWidth board resized across a column boundary
+ * - setupUniform, staggered place: the uniform and staggered setup of the geometry
+ *
+ * Binding, measuring and laying out the cell views is not included, TouchAllocationTest covers the
+ * views on a device. Time is reported per item, per point for findPosition.
+ *
+ * Skipped unless the chessboard.benchmark system property is true, run it with
+ * {@code ./gradlew :library:testReleaseUnitTest -Pbenchmark}.
+ */
+public class BoardBenchmark {
+
+    private static final int[] ITEM_COUNTS = {10, 100, 1000, 10000};
+
+    private static final int[] COL_COUNTS = {1, 3, 8};
+
+    private static final long WARMUP_NANOS = 100L * 1000 * 1000;
+
+    private static final long RUN_NANOS = 300L * 1000 * 1000;
+
+    private static final int CELL_WIDTH = 120;
+
+    private static final int COL_SPACING = 4;
+
+    private static final int ROW_SPACING = 4;
+
+    private static final int HIT_POINTS = 1024;
+
+    private static long sink;
+
+    @Test
+    public void run() {
+        Assume.assumeTrue(Boolean.getBoolean("chessboard.benchmark"));
+
+        System.out.println(String.format("%-22s %6s %4s %14s %12s %12s",
+                "pass", "items", "cols", "passes/s", "ns/item", "bytes/pass"));
+        for (int itemCount : ITEM_COUNTS) {
+            for (int colCount : COL_COUNTS) {
+                final Board board = new Board(itemCount, colCount);
+                for (Pass pass : board.passes()) {
+                    report(pass, itemCount, colCount, measure(pass));
+                }
+            }
+        }
+        System.out.println("sink " + sink);
+    }
+
+    private static void report(Pass pass, int itemCount, int colCount, long[] result) {
+        final long passes = result[0];
+        final long nanos = result[1];
+        final long bytes = result[2];
+        System.out.println(String.format("%-22s %6d %4d %14.0f %12.2f %12s",
+                pass.name, itemCount, colCount,
+                passes * 1e9 / nanos,
+                (double) nanos / passes / pass.units,
+                bytes < 0 ? "n/a" : String.format("%.1f", (double) bytes / passes)));
+    }
+
+    /**
+     * @return passes run, nanos taken and bytes allocated (-1 if the JVM can't tell).
+     */
+    private static long[] measure(Pass pass) {
+        for (long end = System.nanoTime() + WARMUP_NANOS; System.nanoTime() < end; ) {
+            pass.run();
+        }
+
+        final long allocatedBefore = allocatedBytes();
+        final long start = System.nanoTime();
+        final long end = start + RUN_NANOS;
+        long passes = 0;
+        long now;
+        do {
+            pass.run();
+            passes++;
+            now = System.nanoTime();
+        } while (now < end);
+        final long allocatedAfter = allocatedBytes();
+
+        final long bytes = allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore;
+        return new long[]{passes, now - start, bytes};
+    }
+
+    private static long allocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    abstract static class Pass {
+
+        final String name;
+
+        /**
+         * Items, or points, handled by one pass.
+         */
+        final int units;
+
+        Pass(String name, int units) {
+            this.name = name;
+            this.units = units;
+        }
+
+        abstract void run();
+    }
+
+    /**
+     * A board of cells with random heights and stable ids.
+     */
+    static final class Board {
+
+        private final BoardGeometry geometry = new BoardGeometry();
+
+        private final StaggeredGeometry staggeredGeometry = new StaggeredGeometry();
+
+        private final MeasureCache measureCache = new MeasureCache();
+
+        private final int itemCount;
+
+        private final int baseColCount;
+
+        private int colCount;
+
+        private final int[] itemHeights;
+
+        private final BoardColumns columns = new BoardColumns();
+
+        private final BoardColumns layoutColumns = new BoardColumns();
+
+        private final int[] cellBounds = new int[4];
+
+        private boolean rtl;
+
+        private final int[] hitXs = new int[HIT_POINTS];
+
+        private final int[] hitYs = new int[HIT_POINTS];
+
+        private final BoardGeometry.CellMeasurer heightMeasurer = new BoardGeometry.CellMeasurer() {
+            @Override
+            public int measureCell(int position) {
+                return itemHeights[position];
+            }
+        };
+
+        private final BoardGeometry.CellMeasurer cacheMeasurer = new BoardGeometry.CellMeasurer() {
+            @Override
+            public int measureCell(int position) {
+                return measureCache.get(position, cellWidthSpec());
+            }
+        };
+
+        Board(int itemCount, int colCount) {
+            this.itemCount = itemCount;
+            this.baseColCount = colCount;
+            this.colCount = colCount;
+
+            final Random random = new Random(itemCount * 31 + colCount);
+            itemHeights = new int[itemCount];
+            for (int position = 0; position < itemCount; position++) {
+                itemHeights[position] = 40 + random.nextInt(200);
+                measureCache.put(position, cellWidthSpec(), itemHeights[position]);
+            }
+
+            measure();
+            columns.split(colCount, colCount * CELL_WIDTH + (colCount - 1) * COL_SPACING, COL_SPACING, null);
+            final int width = colCount * (CELL_WIDTH + COL_SPACING);
+            final int height = Math.max(1, geometry.getTotalHeight());
+            for (int i = 0; i < HIT_POINTS; i++) {
+                hitXs[i] = random.nextInt(width);
+                hitYs[i] = random.nextInt(height);
+            }
+        }
+
+        Pass[] passes() {
+            // the geometry and columns are measured with baseColCount by the constructor, the hit test runs on that
+            return new Pass[]{
+                    new Pass("findPosition", HIT_POINTS) {
+                        @Override
+                        void run() {
+                            for (int i = 0; i < HIT_POINTS; i++) {
+                                sink += geometry.findPosition(hitXs[i], hitYs[i], columns);
+                            }
+                        }
+                    },
+                    new Pass("measureRows", itemCount) {
+                        @Override
+                        void run() {
+                            measure();
+                        }
+                    },
+                    new Pass("measureRows+bounds", itemCount) {
+                        @Override
+                        void run() {
+                            measure();
+                            layout();
+                        }
+                    },
+                    new Pass("measureRows cached", itemCount) {
+                        @Override
+                        void run() {
+                            remeasureFromCache();
+                            layout();
+                        }
+                    },
+                    new Pass("colCount toggle", itemCount) {
+                        @Override
+                        void run() {
+                            colCount = colCount == baseColCount ? baseColCount + 1 : baseColCount;
+                            measure();
+                            layout();
+                        }
+                    },
+                    new Pass("setupUniform", itemCount) {
+                        @Override
+                        void run() {
+                            geometry.setupUniform(itemCount, baseColCount, null, 120, ROW_SPACING);
+                            sink += geometry.getTotalHeight();
+                        }
+                    },
+                    new Pass("staggered place", itemCount) {
+                        @Override
+                        void run() {
+                            staggeredGeometry.setup(itemCount, baseColCount, null);
+                            for (int position = 0; position < itemCount; position++) {
+                                staggeredGeometry.place(position, itemHeights[position], ROW_SPACING);
+                            }
+                            sink += staggeredGeometry.getTotalHeight();
+                        }
+                    },
+            };
+        }
+
+        private int cellWidthSpec() {
+            // stands in for MeasureSpec.makeMeasureSpec(CELL_WIDTH, EXACTLY)
+            return CELL_WIDTH | (1 << 30);
+        }
+
+        /**
+         * measureAllRows without binding: the board's row loop over synthetic cell heights.
+         */
+        private void measure() {
+            geometry.setup(itemCount, colCount, null);
+            geometry.measureRows(heightMeasurer, ROW_SPACING);
+        }
+
+        /**
+         * measureAllRows of a windowed board with stable ids, every height comes from the cache.
+         */
+        private void remeasureFromCache() {
+            geometry.setup(itemCount, colCount, null);
+            geometry.measureRows(cacheMeasurer, ROW_SPACING);
+        }
+
+        /**
+         * The column split of measureBoard and the cell bounds of layoutChild for every item, the
+         * bounds go to the sink.
+         */
+        private void layout() {
+            final int contentWidth = colCount * CELL_WIDTH + (colCount - 1) * COL_SPACING;
+            layoutColumns.split(colCount, contentWidth, COL_SPACING, null);
+            rtl = !rtl;
+
+            for (int position = 0; position < itemCount; position++) {
+                if (geometry.getCellBounds(position, layoutColumns, rtl, contentWidth, cellBounds)) {
+                    sink += cellBounds[0] + cellBounds[1] + cellBounds[2] + cellBounds[3];
+                }
+            }
+        }
+    }
+}
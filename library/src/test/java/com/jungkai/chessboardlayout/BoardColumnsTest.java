@@ -0,0 +1,76 @@
+package com.jungkai.chessboardlayout;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BoardColumnsTest {
+
+    @Test
+    public void equalSplitMatchesLegacyChildWidth() {
+        BoardColumns columns = new BoardColumns();
+        columns.split(3, 301, 4, null);
+
+        // (availableWidth - colSpacing * (colCount - 1)) / colCount
+        final int childWidth = (301 - 4 * 2) / 3;
+        for (int column = 0; column < 3; column++) {
+            assertEquals(childWidth, columns.getWidth(column));
+            assertEquals(column * (childWidth + 4), columns.getOffset(column));
+        }
+        assertEquals(childWidth * 2 + 4, columns.getSpanWidth(1, 2));
+    }
+
+    @Test
+    public void weightsSplitTheWholeWidth() {
+        BoardColumns columns = new BoardColumns();
+        columns.split(3, 106, 3, new float[]{2, 1});
+
+        assertEquals(50, columns.getWidth(0));
+        assertEquals(25, columns.getWidth(1));
+        assertEquals(25, columns.getWidth(2));
+        assertEquals(106, columns.getTotalWidth());
+        assertEquals(81, columns.getOffset(2));
+    }
+
+    @Test
+    public void fitSizesColumnsToTheirWidestCell() {
+        BoardColumns columns = new BoardColumns();
+        columns.beginFit(3, 2);
+        columns.fitCell(0, 1, 30);
+        columns.fitCell(1, 1, 10);
+        columns.fitCell(0, 1, 40);
+        columns.fitCell(0, 3, 200);
+
+        columns.finishFit(false);
+        assertEquals(40, columns.getWidth(0));
+        assertEquals(10, columns.getWidth(1));
+        // only a spanning cell, its share of the span
+        assertEquals(65, columns.getWidth(2));
+
+        columns.finishFit(true);
+        for (int column = 0; column < 3; column++) {
+            assertEquals(65, columns.getWidth(column));
+        }
+    }
+
+    @Test
+    public void columnAtOffsetIncludesTheFollowingSpacing() {
+        BoardColumns columns = new BoardColumns();
+        columns.split(3, 106, 3, new float[]{2, 1, 1});
+
+        assertEquals(-1, columns.getColumnAt(-1));
+        assertEquals(0, columns.getColumnAt(0));
+        assertEquals(0, columns.getColumnAt(52));
+        assertEquals(1, columns.getColumnAt(53));
+        assertEquals(2, columns.getColumnAt(105));
+        assertEquals(-1, columns.getColumnAt(106));
+    }
+
+    @Test
+    public void columnCountFitsMinimumCellWidth() {
+        assertEquals(3, BoardColumns.countColumns(320, 100, 10));
+        assertEquals(2, BoardColumns.countColumns(319, 100, 10));
+        assertEquals(1, BoardColumns.countColumns(50, 100, 10));
+        assertEquals(5, BoardColumns.countColumns(560, 100, 10));
+    }
+}
@@ -0,0 +1,395 @@
+package com.jungkai.chessboardlayout;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class BoardGeometryTest {
+
+    private static final int[] ROW_HEIGHTS = {120, 48, 300, 0, 75, 75, 1};
+
+    /**
+     * Row top as the previous onLayout computed it: heights of all earlier rows plus spacing.
+     */
+    private static int legacyRowTop(int[] rowHeights, int rowIdx, int rowSpacing) {
+        int top = 0;
+        for (int j = 0; j < rowIdx; j++) {
+            top += rowHeights[j];
+        }
+        if (rowIdx > 0) {
+            top += rowSpacing * rowIdx;
+        }
+        return top;
+    }
+
+    /**
+     * Total height as the previous onMeasure computed it.
+     */
+    private static int legacyTotalHeight(int[] rowHeights, int itemCount, int colCount, int rowSpacing) {
+        int totalHeight = 0;
+        for (int rowHeight : rowHeights) {
+            totalHeight += rowHeight;
+        }
+        if (itemCount > 0) {
+            int rowCount = itemCount / colCount + ((itemCount % colCount == 0) ? 0 : 1);
+            totalHeight = totalHeight + (rowCount - 1) * rowSpacing;
+        }
+        return totalHeight;
+    }
+
+    private static BoardGeometry build(int[] rowHeights, int itemCount, int colCount, int rowSpacing) {
+        BoardGeometry geometry = new BoardGeometry();
+        geometry.setup(itemCount, colCount);
+        for (int i = 0; i < rowHeights.length; i++) {
+            geometry.setRowHeight(i, rowHeights[i]);
+        }
+        geometry.computeRowOffsets(rowSpacing);
+        return geometry;
+    }
+
+    @Test
+    public void measureRowsTakesTheTallestCellOfEachRow() {
+        final int[] cellHeights = {10, 30, 20, 5, 5, 40, 7};
+        BoardGeometry geometry = new BoardGeometry();
+        geometry.setup(cellHeights.length, 3);
+        geometry.measureRows(new BoardGeometry.CellMeasurer() {
+            @Override
+            public int measureCell(int position) {
+                return cellHeights[position];
+            }
+        }, 2);
+
+        assertEquals(3, geometry.getRowCount());
+        assertEquals(30, geometry.getRowHeight(0));
+        assertEquals(40, geometry.getRowHeight(1));
+        assertEquals(7, geometry.getRowHeight(2));
+        assertEquals(32, geometry.getRowTop(1));
+        assertEquals(30 + 40 + 7 + 2 * 2, geometry.getTotalHeight());
+    }
+
+    @Test
+    public void rowTopsMatchLegacyLayout() {
+        final int colCount = 3;
+        final int itemCount = ROW_HEIGHTS.length * colCount - 1;
+
+        for (int rowSpacing : new int[]{0, 1, 7}) {
+            BoardGeometry geometry = build(ROW_HEIGHTS, itemCount, colCount, rowSpacing);
+
+            assertEquals(ROW_HEIGHTS.length, geometry.getRowCount());
+            for (int row = 0; row < ROW_HEIGHTS.length; row++) {
+                assertEquals(legacyRowTop(ROW_HEIGHTS, row, rowSpacing), geometry.getRowTop(row));
+                assertEquals(ROW_HEIGHTS[row], geometry.getRowHeight(row));
+            }
+            assertEquals(legacyTotalHeight(ROW_HEIGHTS, itemCount, colCount, rowSpacing),
+                    geometry.getTotalHeight());
+        }
+    }
+
+    @Test
+    public void positionMapsToRowAndColumn() {
+        BoardGeometry geometry = build(ROW_HEIGHTS, 20, 3, 2);
+
+        for (int position = 0; position < 20; position++) {
+            assertEquals(position / 3, geometry.getRowForPosition(position));
+            assertEquals(position % 3, geometry.getColumnForPosition(position));
+        }
+    }
+
+    @Test
+    public void setupResetsPreviousRows() {
+        BoardGeometry geometry = build(ROW_HEIGHTS, 21, 3, 4);
+
+        geometry.setup(4, 2);
+        geometry.setRowHeight(0, 10);
+        geometry.computeRowOffsets(4);
+
+        assertEquals(2, geometry.getRowCount());
+        assertEquals(0, geometry.getRowHeight(1));
+        assertEquals(14, geometry.getRowTop(1));
+        assertEquals(14, geometry.getTotalHeight());
+    }
+
+    @Test
+    public void emptyBoardHasNoHeight() {
+        BoardGeometry geometry = build(new int[0], 0, 3, 5);
+
+        assertEquals(0, geometry.getRowCount());
+        assertEquals(0, geometry.getTotalHeight());
+    }
+
+    @Test
+    public void partialOffsetsMatchFullRebuild() {
+        BoardGeometry geometry = build(ROW_HEIGHTS, 21, 3, 3);
+
+        geometry.setItemCount(26);
+        geometry.setRowHeight(4, 11);
+        geometry.setRowHeight(7, 40);
+        geometry.setRowHeight(8, 9);
+        geometry.computeRowOffsets(3, 4);
+
+        int[] expected = {120, 48, 300, 0, 11, 75, 1, 40, 9};
+        BoardGeometry full = build(expected, 26, 3, 3);
+
+        assertEquals(full.getRowCount(), geometry.getRowCount());
+        for (int row = 0; row < expected.length; row++) {
+            assertEquals(full.getRowTop(row), geometry.getRowTop(row));
+        }
+        assertEquals(full.getTotalHeight(), geometry.getTotalHeight());
+    }
+
+    @Test
+    public void rowAtOffsetFindsRowContainingOffset() {
+        BoardGeometry geometry = build(ROW_HEIGHTS, 21, 3, 2);
+
+        for (int row = 0; row < ROW_HEIGHTS.length; row++) {
+            assertEquals(row, geometry.getRowAtOffset(geometry.getRowTop(row)));
+            if (ROW_HEIGHTS[row] > 0) {
+                assertEquals(row, geometry.getRowAtOffset(geometry.getRowBottom(row) - 1));
+            }
+        }
+        assertEquals(0, geometry.getRowAtOffset(-10));
+        assertEquals(ROW_HEIGHTS.length - 1, geometry.getRowAtOffset(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void uniformRowsMatchRowTable() {
+        final int[] heights = new int[7];
+        Arrays.fill(heights, 64);
+        BoardGeometry table = build(heights, 20, 3, 5);
+
+        BoardGeometry uniform = new BoardGeometry();
+        uniform.setupUniform(20, 3, null, 64, 5);
+
+        assertEquals(table.getRowCount(), uniform.getRowCount());
+        for (int row = 0; row < heights.length; row++) {
+            assertEquals(table.getRowTop(row), uniform.getRowTop(row));
+            assertEquals(table.getRowHeight(row), uniform.getRowHeight(row));
+        }
+        assertEquals(table.getTotalHeight(), uniform.getTotalHeight());
+        for (int offset = -3; offset < table.getTotalHeight() + 10; offset++) {
+            assertEquals(table.getRowAtOffset(offset), uniform.getRowAtOffset(offset));
+        }
+    }
+
+    @Test
+    public void uniformItemCountChangeKeepsRowHeight() {
+        BoardGeometry geometry = new BoardGeometry();
+        geometry.setupUniform(4, 2, null, 30, 2);
+
+        geometry.setItemCount(7);
+
+        assertEquals(4, geometry.getRowCount());
+        assertEquals(30, geometry.getRowHeight(3));
+        assertEquals(126, geometry.getTotalHeight());
+
+        geometry.setup(2, 2);
+        assertEquals(0, geometry.getRowHeight(0));
+    }
+
+    /**
+     * Spans of a board with a full width header every 7 items and a double width item every 5.
+     */
+    private static final SpanSizeLookup SECTIONS = new SpanSizeLookup() {
+        @Override
+        public int getSpanSize(int position) {
+            if (position % 7 == 0) {
+                return 100;
+            }
+            return position % 5 == 0 ? 2 : 1;
+        }
+    };
+
+    /**
+     * Row and column of every item as a scan from position 0 finds them.
+     */
+    private static int[][] scanCells(SpanSizeLookup lookup, int itemCount, int colCount) {
+        int[][] cells = new int[itemCount][];
+        int row = 0;
+        int column = 0;
+        for (int position = 0; position < itemCount; position++) {
+            int span = Math.max(1, Math.min(colCount, lookup.getSpanSize(position)));
+            if (column + span > colCount) {
+                row++;
+                column = 0;
+            }
+            cells[position] = new int[]{row, column, span};
+            column += span;
+        }
+        return cells;
+    }
+
+    private static void assertCells(int[][] expected, BoardGeometry geometry) {
+        for (int position = 0; position < expected.length; position++) {
+            assertEquals(expected[position][0], geometry.getRowForPosition(position));
+            assertEquals(expected[position][1], geometry.getColumnForPosition(position));
+            assertEquals(expected[position][2], geometry.getSpanForPosition(position));
+        }
+        final int rowCount = expected.length == 0 ? 0 : expected[expected.length - 1][0] + 1;
+        assertEquals(rowCount, geometry.getRowCount());
+        for (int row = 0; row < rowCount; row++) {
+            for (int position = geometry.getFirstPositionInRow(row); position < geometry.getEndPositionInRow(row); position++) {
+                assertEquals(row, expected[position][0]);
+                for (int column = 0; column < expected[position][2]; column++) {
+                    assertEquals(position, geometry.getPositionAt(row, expected[position][1] + column));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void spansMatchScanFromStart() {
+        for (int colCount = 1; colCount <= 4; colCount++) {
+            BoardGeometry geometry = new BoardGeometry();
+            geometry.setup(50, colCount, SECTIONS);
+
+            assertCells(scanCells(SECTIONS, 50, colCount), geometry);
+        }
+    }
+
+    @Test
+    public void spansAfterItemCountChangeMatchFullSetup() {
+        final int[] offsets = {0};
+        SpanSizeLookup shifted = new SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                return SECTIONS.getSpanSize(position < 12 ? position : position + offsets[0]);
+            }
+        };
+
+        for (int offset : new int[]{-3, 1, 4}) {
+            BoardGeometry geometry = new BoardGeometry();
+            offsets[0] = 0;
+            geometry.setup(40, 3, shifted);
+
+            // items from position 12 on inserted or removed
+            offsets[0] = offset;
+            int firstRow = geometry.setItemCount(40 - offset, shifted, 12);
+
+            assertEquals(true, firstRow <= geometry.getRowForPosition(11));
+            assertCells(scanCells(shifted, 40 - offset, 3), geometry);
+        }
+    }
+
+    @Test
+    public void positionPastRowEndHitsNothing() {
+        BoardGeometry geometry = new BoardGeometry();
+        geometry.setup(3, 3, new SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                return position == 1 ? 3 : 1;
+            }
+        });
+
+        assertEquals(3, geometry.getRowCount());
+        assertEquals(-1, geometry.getPositionAt(0, 1));
+        assertEquals(1, geometry.getPositionAt(1, 2));
+        assertEquals(-1, geometry.getPositionAt(2, 1));
+    }
+
+    /**
+     * Three columns 100 wide and 10 apart, rows 50 and 30 high and 8 apart.
+     */
+    private static BoardColumns threeColumns() {
+        BoardColumns columns = new BoardColumns();
+        columns.split(3, 320, 10, null);
+        return columns;
+    }
+
+    private static BoardGeometry twoRows(int itemCount, SpanSizeLookup spanSizeLookup) {
+        BoardGeometry geometry = new BoardGeometry();
+        geometry.setup(itemCount, 3, spanSizeLookup);
+        geometry.setRowHeight(0, 50);
+        geometry.setRowHeight(1, 30);
+        geometry.computeRowOffsets(8);
+        return geometry;
+    }
+
+    @Test
+    public void findPositionMissesSpacing() {
+        BoardColumns columns = threeColumns();
+        BoardGeometry geometry = twoRows(6, null);
+
+        assertEquals(0, geometry.findPosition(0, 0, columns));
+        assertEquals(0, geometry.findPosition(99, 49, columns));
+        assertEquals(1, geometry.findPosition(110, 0, columns));
+        assertEquals(5, geometry.findPosition(319, 87, columns));
+
+        // column spacing, row spacing and both
+        assertEquals(-1, geometry.findPosition(100, 10, columns));
+        assertEquals(-1, geometry.findPosition(109, 10, columns));
+        assertEquals(-1, geometry.findPosition(50, 50, columns));
+        assertEquals(-1, geometry.findPosition(50, 57, columns));
+        assertEquals(-1, geometry.findPosition(105, 54, columns));
+
+        // outside of the board
+        assertEquals(-1, geometry.findPosition(-1, 10, columns));
+        assertEquals(-1, geometry.findPosition(320, 10, columns));
+        assertEquals(-1, geometry.findPosition(50, 88, columns));
+    }
+
+    @Test
+    public void findPositionPastShortLastRowHitsNothing() {
+        BoardColumns columns = threeColumns();
+        BoardGeometry geometry = twoRows(5, null);
+
+        assertEquals(3, geometry.findPosition(50, 60, columns));
+        assertEquals(4, geometry.findPosition(150, 60, columns));
+        assertEquals(-1, geometry.findPosition(250, 60, columns));
+        assertEquals(2, geometry.findPosition(250, 10, columns));
+    }
+
+    @Test
+    public void findPositionOfSpanningCellCoversSpacing() {
+        BoardColumns columns = threeColumns();
+        BoardGeometry geometry = twoRows(4, new SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                return position == 1 ? 2 : 1;
+            }
+        });
+
+        // 0 and 1 (columns 1 and 2) in the first row, 2 and 3 in the second
+        assertEquals(1, geometry.findPosition(110, 10, columns));
+        assertEquals(1, geometry.findPosition(215, 10, columns));
+        assertEquals(1, geometry.findPosition(319, 10, columns));
+        assertEquals(-1, geometry.findPosition(105, 10, columns));
+        assertEquals(-1, geometry.findPosition(215, 60, columns));
+    }
+
+    @Test
+    public void findPositionMirrorsRightToLeft() {
+        BoardColumns columns = threeColumns();
+        BoardGeometry geometry = twoRows(4, new SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                return position == 1 ? 2 : 1;
+            }
+        });
+        final int contentWidth = 340;
+
+        // 0 and 1 (columns 1 and 2) in the first row, 2 and 3 in the second. The first column is
+        // at the right edge, the 20 pixels left of the columns are empty.
+        assertEquals(0, geometry.findPosition(BoardColumns.toStartOffset(339, true, contentWidth), 10, columns));
+        assertEquals(0, geometry.findPosition(BoardColumns.toStartOffset(240, true, contentWidth), 10, columns));
+        assertEquals(-1, geometry.findPosition(BoardColumns.toStartOffset(235, true, contentWidth), 10, columns));
+        assertEquals(1, geometry.findPosition(BoardColumns.toStartOffset(125, true, contentWidth), 10, columns));
+        assertEquals(-1, geometry.findPosition(BoardColumns.toStartOffset(10, true, contentWidth), 10, columns));
+        assertEquals(-1, geometry.findPosition(BoardColumns.toStartOffset(30, true, contentWidth), 60, columns));
+
+        // every cell hits its own item at its edges
+        int[] bounds = new int[4];
+        for (int position = 0; position < geometry.getItemCount(); position++) {
+            assertEquals(true, geometry.getCellBounds(position, columns, true, contentWidth, bounds));
+            for (int x : new int[]{bounds[0], bounds[2] - 1}) {
+                for (int y : new int[]{bounds[1], bounds[3] - 1}) {
+                    assertEquals(position, geometry.findPosition(
+                            BoardColumns.toStartOffset(x, true, contentWidth), y, columns));
+                }
+            }
+            assertEquals(-1, geometry.findPosition(BoardColumns.toStartOffset(bounds[0] - 1, true, contentWidth),
+                    bounds[1], columns));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.jungkai.chessboardlayout;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class MeasureCacheTest {
+
+    @Test
+    public void heightsAreKeptPerWidth() {
+        MeasureCache cache = new MeasureCache();
+        cache.put(7L, 100, 40);
+        cache.put(7L, 200, 25);
+
+        assertEquals(40, cache.get(7L, 100));
+        assertEquals(25, cache.get(7L, 200));
+        assertEquals(MeasureCache.NO_HEIGHT, cache.get(7L, 300));
+        assertEquals(MeasureCache.NO_HEIGHT, cache.get(8L, 100));
+    }
+
+    @Test
+    public void leastRecentlyUsedWidthIsEvicted() {
+        MeasureCache cache = new MeasureCache();
+        for (int width = 0; width < MeasureCache.MAX_WIDTHS; width++) {
+            cache.put(1L, width, width + 10);
+        }
+        // touch width 0, so width 1 is the oldest
+        cache.get(1L, 0);
+        cache.put(1L, 99, 5);
+
+        assertEquals(10, cache.get(1L, 0));
+        assertEquals(MeasureCache.NO_HEIGHT, cache.get(1L, 1));
+        assertEquals(5, cache.get(1L, 99));
+    }
+
+    @Test
+    public void invalidateForgetsItemForEveryWidth() {
+        MeasureCache cache = new MeasureCache();
+        cache.put(3L, 100, 40);
+        cache.put(3L, 200, 50);
+        cache.put(4L, 100, 60);
+
+        cache.invalidate(3L);
+
+        assertEquals(MeasureCache.NO_HEIGHT, cache.get(3L, 100));
+        assertEquals(MeasureCache.NO_HEIGHT, cache.get(3L, 200));
+        assertEquals(60, cache.get(4L, 100));
+    }
+
+    @Test
+    public void tableMatchesHashMapUnderRandomOperations() {
+        MeasureCache.Table table = new MeasureCache.Table();
+        Map<Long, Integer> expected = new HashMap<Long, Integer>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(2000) * 31L - 5000;
+            if (random.nextInt(3) == 0) {
+                table.remove(key);
+                expected.remove(key);
+            } else {
+                int value = random.nextInt(1000);
+                table.put(key, value);
+                expected.put(key, value);
+            }
+        }
+
+        assertEquals(expected.size(), table.size());
+        for (long key = -5000; key < 2000 * 31L; key += 31) {
+            Integer value = expected.get(key);
+            assertEquals(value == null ? MeasureCache.NO_HEIGHT : value, table.get(key));
+        }
+    }
+}
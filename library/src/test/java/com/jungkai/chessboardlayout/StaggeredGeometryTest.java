@@ -0,0 +1,130 @@
+package com.jungkai.chessboardlayout;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class StaggeredGeometryTest {
+
+    private static final SpanSizeLookup EVERY_TENTH_FULL = new SpanSizeLookup() {
+        @Override
+        public int getSpanSize(int position) {
+            return position % 10 == 9 ? 2 : 1;
+        }
+    };
+
+    private static int[] randomHeights(int count) {
+        Random random = new Random(count);
+        int[] heights = new int[count];
+        for (int i = 0; i < count; i++) {
+            heights[i] = random.nextInt(300);
+        }
+        return heights;
+    }
+
+    private static StaggeredGeometry place(int[] heights, int colCount, SpanSizeLookup lookup, int rowSpacing) {
+        StaggeredGeometry geometry = new StaggeredGeometry();
+        geometry.setup(heights.length, colCount, lookup);
+        for (int position = 0; position < heights.length; position++) {
+            geometry.place(position, heights[position], rowSpacing);
+        }
+        return geometry;
+    }
+
+    @Test
+    public void itemsGoToShortestColumn() {
+        final int[] heights = randomHeights(200);
+        final int rowSpacing = 3;
+
+        for (int colCount = 1; colCount <= 5; colCount++) {
+            StaggeredGeometry geometry = place(heights, colCount, EVERY_TENTH_FULL, rowSpacing);
+
+            // scan all columns for the shortest one, the lowest column wins a tie
+            int[] columnHeights = new int[colCount];
+            int totalHeight = 0;
+            for (int position = 0; position < heights.length; position++) {
+                int top;
+                if (colCount > 1 && position % 10 == 9) {
+                    top = 0;
+                    for (int column = 0; column < colCount; column++) {
+                        top = Math.max(top, columnHeights[column]);
+                    }
+                    for (int column = 0; column < colCount; column++) {
+                        columnHeights[column] = top + heights[position] + rowSpacing;
+                    }
+                    assertEquals(0, geometry.getColumn(position));
+                    assertEquals(colCount, geometry.getSpan(position));
+                } else {
+                    int shortest = 0;
+                    for (int column = 1; column < colCount; column++) {
+                        if (columnHeights[column] < columnHeights[shortest]) {
+                            shortest = column;
+                        }
+                    }
+                    top = columnHeights[shortest];
+                    columnHeights[shortest] = top + heights[position] + rowSpacing;
+                    assertEquals(shortest, geometry.getColumn(position));
+                    assertEquals(1, geometry.getSpan(position));
+                }
+                assertEquals(top, geometry.getTop(position));
+                assertEquals(top + heights[position], geometry.getBottom(position));
+                totalHeight = Math.max(totalHeight, top + heights[position]);
+            }
+            assertEquals(totalHeight, geometry.getTotalHeight());
+        }
+    }
+
+    @Test
+    public void positionAtFindsItemOfColumn() {
+        final int[] heights = randomHeights(100);
+        StaggeredGeometry geometry = place(heights, 3, EVERY_TENTH_FULL, 4);
+
+        for (int position = 0; position < heights.length; position++) {
+            if (heights[position] == 0) {
+                continue;
+            }
+            final int column = geometry.getColumn(position) + geometry.getSpan(position) - 1;
+            assertEquals(position, geometry.getPositionAt(column, geometry.getTop(position)));
+            assertEquals(position, geometry.getPositionAt(column, geometry.getBottom(position) - 1));
+        }
+        assertEquals(-1, geometry.getPositionAt(0, -1));
+        assertEquals(-1, geometry.getPositionAt(3, 0));
+        assertEquals(-1, geometry.getPositionAt(1, geometry.getTotalHeight()));
+    }
+
+    @Test
+    public void findPositionFollowsUnevenColumns() {
+        // column 0: 0 and 4, column 1: 1, 2 and 3, 5 apart
+        StaggeredGeometry geometry = place(new int[]{100, 30, 30, 30, 200}, 2, null, 5);
+        BoardColumns columns = new BoardColumns();
+        columns.split(2, 210, 10, null);
+
+        assertEquals(0, geometry.findPosition(50, 50, columns));
+        assertEquals(2, geometry.findPosition(150, 50, columns));
+        assertEquals(3, geometry.findPosition(209, 99, columns));
+        assertEquals(4, geometry.findPosition(50, 200, columns));
+        assertEquals(4, geometry.findPosition(50, 304, columns));
+
+        // row spacing, column spacing and below the shorter column
+        assertEquals(-1, geometry.findPosition(150, 32, columns));
+        assertEquals(-1, geometry.findPosition(50, 102, columns));
+        assertEquals(-1, geometry.findPosition(105, 50, columns));
+        assertEquals(-1, geometry.findPosition(150, 200, columns));
+        assertEquals(-1, geometry.findPosition(50, 305, columns));
+    }
+
+    @Test
+    public void setupAgainForgetsPlacement() {
+        StaggeredGeometry geometry = place(randomHeights(30), 4, null, 0);
+
+        geometry.setup(2, 2, null);
+        geometry.place(0, 10, 0);
+        geometry.place(1, 20, 0);
+
+        assertEquals(1, geometry.getColumn(1));
+        assertEquals(0, geometry.getTop(1));
+        assertEquals(20, geometry.getTotalHeight());
+    }
+}